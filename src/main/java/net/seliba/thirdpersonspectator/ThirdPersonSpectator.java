@@ -2,15 +2,24 @@ package net.seliba.thirdpersonspectator;
 
 import com.github.johnnyjayjay.compatre.NmsClassLoader;
 import net.seliba.thirdpersonspectator.commands.SpectateCommand;
+import net.seliba.thirdpersonspectator.commands.SpectatorStatsCommand;
 import net.seliba.thirdpersonspectator.configuration.ConfigFile;
 import net.seliba.thirdpersonspectator.configuration.ConfigurationProvider;
 import net.seliba.thirdpersonspectator.configuration.types.MainConfig;
 import net.seliba.thirdpersonspectator.configuration.types.Message;
+import net.seliba.thirdpersonspectator.gui.SkullCache;
+import net.seliba.thirdpersonspectator.gui.SpectateMenu;
 import net.seliba.thirdpersonspectator.listener.*;
+import net.seliba.thirdpersonspectator.model.SpectatablePlayerFactory;
+import net.seliba.thirdpersonspectator.model.SpectateService;
 import net.seliba.thirdpersonspectator.scheduler.SpectatorScheduler;
+import net.seliba.thirdpersonspectator.utils.MaterialUtils;
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.ArrayList;
+
 /**
  * Class which initializes the plugin.
  * {@link ThirdPersonSpectator#onEnable()} is called upon plugin startup.
@@ -18,6 +27,10 @@ import org.bukkit.plugin.java.JavaPlugin;
 public final class ThirdPersonSpectator extends JavaPlugin {
 
     private ConfigurationProvider configurationProvider;
+    private SpectatorScheduler spectatorScheduler;
+    private SpectateService spectateService;
+    private SkullCache skullCache;
+    private SpectateMenu spectateMenu;
 
     /*
      * Enables multi-version support with the help of compatre (https://github.com/JohnnyJayJay/compatre).
@@ -32,22 +45,67 @@ public final class ThirdPersonSpectator extends JavaPlugin {
     @Override
     public void onEnable() {
         initializeConfigs();
+        initializeMaterials();
+
+        // Settings read on demand are updated by the new snapshot, cached Materials have to be reloaded
+        configurationProvider.addReloadListener(this::initializeMaterials);
+
+        this.spectatorScheduler = new SpectatorScheduler(configurationProvider);
+
+        // Cached camera solutions and heightmaps may depend on the previous transparent Materials
+        configurationProvider.addReloadListener(spectatorScheduler.getCameraSolutionCache()::clear);
+        configurationProvider.addReloadListener(spectatorScheduler.getHeightmapCache()::clear);
+
+        // The pages of the SpectateGUI and the skulls contain configured names, sizes and lores
+        this.spectateService = new SpectateService(configurationProvider);
+        this.skullCache = new SkullCache(configurationProvider);
+        this.spectateMenu = new SpectateMenu(configurationProvider, skullCache, spectateService);
+        configurationProvider.addReloadListener(skullCache::clear);
+        configurationProvider.addReloadListener(spectateMenu::rebuild);
+
         registerCommand();
         registerListener();
 
+        // Register Players which are already online, e.g. after a reload
+        Bukkit.getOnlinePlayers().forEach(SpectatablePlayerFactory::register);
+        spectateMenu.rebuild();
+
         // Start the scheduler who updates the ArmorStand positions for the spectator cameras
-        new SpectatorScheduler().start(this);
+        spectatorScheduler.start(this);
 
         getLogger().info("Successfully started!");
     }
 
+    /**
+     * The shutdown logic.
+     */
+    @Override
+    public void onDisable() {
+        if (spectatorScheduler != null) {
+            spectatorScheduler.stop();
+        }
+
+        if (configurationProvider != null) {
+            configurationProvider.close();
+        }
+    }
+
+    /**
+     * Returns the scheduler which updates the spectator cameras.
+     *
+     * @return The scheduler of the spectator cameras.
+     */
+    public SpectatorScheduler getSpectatorScheduler() {
+        return spectatorScheduler;
+    }
+
     /**
      * Creates configuration files if necessary and registers them in the internal Config system.
      *
      * @see net.seliba.thirdpersonspectator.configuration
      */
     private void initializeConfigs() {
-        this.configurationProvider = new ConfigurationProvider();
+        this.configurationProvider = new ConfigurationProvider(getLogger(), task -> Bukkit.getScheduler().runTask(this, task));
 
         var mainConfigFile = new ConfigFile("config.yml", this);
         var messageConfigFile = new ConfigFile("messages.yml", this);
@@ -57,6 +115,32 @@ public final class ThirdPersonSpectator extends JavaPlugin {
 
         this.configurationProvider.saveDefaultConfig(MainConfig.values());
         this.configurationProvider.saveDefaultConfig(Message.values());
+
+        if (this.configurationProvider.getBoolean(MainConfig.WATCH_CONFIG_FILES)) {
+            this.configurationProvider.watchFiles();
+        }
+    }
+
+    /**
+     * Loads the Materials the spectator cameras can look through from the main config.
+     *
+     * @see MaterialUtils
+     */
+    private void initializeMaterials() {
+        var transparentMaterials = new ArrayList<Material>();
+
+        for (String materialName : configurationProvider.getStringList(MainConfig.TRANSPARENT_MATERIALS)) {
+            var material = Material.matchMaterial(materialName);
+
+            if (material == null) {
+                getLogger().warning("Unknown transparent material " + materialName + ", ignoring it");
+                continue;
+            }
+
+            transparentMaterials.add(material);
+        }
+
+        MaterialUtils.loadTransparentMaterials(transparentMaterials);
     }
 
     /**
@@ -65,10 +149,12 @@ public final class ThirdPersonSpectator extends JavaPlugin {
      * @see net.seliba.thirdpersonspectator.commands
      */
     private void registerCommand() {
-        var spectateCommand = new SpectateCommand(configurationProvider);
+        var spectateCommand = new SpectateCommand(configurationProvider, spectateMenu, spectateService);
 
         getCommand("spectate").setExecutor(spectateCommand);
         getCommand("spectate").setTabCompleter(spectateCommand);
+
+        getCommand("spectatorstats").setExecutor(new SpectatorStatsCommand(configurationProvider, spectatorScheduler));
     }
 
     /**
@@ -79,11 +165,13 @@ public final class ThirdPersonSpectator extends JavaPlugin {
     private void registerListener() {
         var pluginManager = Bukkit.getPluginManager();
 
+        pluginManager.registerEvents(new BlockChangeListener(spectatorScheduler), this);
         pluginManager.registerEvents(new InventoryClickListener(), this);
         pluginManager.registerEvents(new PlayerChangedWorldListener(), this);
-        pluginManager.registerEvents(new PlayerGameModeChangeListener(configurationProvider), this);
-        pluginManager.registerEvents(new PlayerJoinListener(), this);
-        pluginManager.registerEvents(new PlayerQuitListener(), this);
+        pluginManager.registerEvents(new PlayerGameModeChangeListener(configurationProvider, spectatorScheduler, spectateMenu), this);
+        pluginManager.registerEvents(new PlayerJoinListener(spectateMenu), this);
+        pluginManager.registerEvents(new PlayerMoveListener(spectatorScheduler), this);
+        pluginManager.registerEvents(new PlayerQuitListener(spectateMenu, skullCache), this);
         pluginManager.registerEvents(new PlayerToggleSneakListener(), this);
     }
 
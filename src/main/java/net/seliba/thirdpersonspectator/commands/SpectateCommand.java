@@ -2,10 +2,10 @@ package net.seliba.thirdpersonspectator.commands;
 
 import net.seliba.thirdpersonspectator.configuration.ConfigurationProvider;
 import net.seliba.thirdpersonspectator.configuration.types.Message;
-import net.seliba.thirdpersonspectator.gui.SpectateGUI;
+import net.seliba.thirdpersonspectator.gui.SpectateMenu;
 import net.seliba.thirdpersonspectator.model.SpectatablePlayer;
 import net.seliba.thirdpersonspectator.model.SpectatablePlayerFactory;
-import net.seliba.thirdpersonspectator.utils.SoundUtils;
+import net.seliba.thirdpersonspectator.model.SpectateService;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -13,6 +13,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -21,20 +22,29 @@ import java.util.stream.Collectors;
  */
 public final class SpectateCommand implements CommandExecutor, TabCompleter {
 
+    private static final String RELOAD_PERMISSION = "thirdpersonspectator.reload";
+
     private final ConfigurationProvider configurationProvider;
+    private final SpectateMenu spectateMenu;
+    private final SpectateService spectateService;
 
     /**
      * The default constructor.
      *
      * @param configurationProvider The provider of configurations for the plugin.
+     * @param spectateMenu          The menu showing all spectatable Players.
+     * @param spectateService       The service which lets Players spectate others.
      */
-    public SpectateCommand(ConfigurationProvider configurationProvider) {
+    public SpectateCommand(ConfigurationProvider configurationProvider, SpectateMenu spectateMenu, SpectateService spectateService) {
         this.configurationProvider = configurationProvider;
+        this.spectateMenu = spectateMenu;
+        this.spectateService = spectateService;
     }
 
     /**
      * Executes this command with the provided arguments.
      * Allows Player's to spectate others in a third-person view.
+     * Senders with the permission {@value RELOAD_PERMISSION} may reload the configuration using the reload argument.
      *
      * @param sender  The sender which executes this command.
      * @param command The Bukkit {@link org.bukkit.command.Command} representation.
@@ -44,8 +54,16 @@ public final class SpectateCommand implements CommandExecutor, TabCompleter {
      */
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // Players without the permission may still spectate a Player named reload
+        if (args.length == 1 && args[0].equalsIgnoreCase("reload") && sender.hasPermission(RELOAD_PERMISSION)) {
+            configurationProvider.reload().thenAccept(reloaded -> sender.sendMessage(
+                    configurationProvider.getMessage(reloaded ? Message.RELOAD_SUCCESS : Message.RELOAD_FAILED)
+            ));
+            return true;
+        }
+
         if (!(sender instanceof Player)) {
-            sender.sendMessage(configurationProvider.getString(Message.PREFIX, Message.NO_PLAYER));
+            sender.sendMessage(configurationProvider.getMessage(Message.NO_PLAYER));
             return false;
         }
 
@@ -53,33 +71,17 @@ public final class SpectateCommand implements CommandExecutor, TabCompleter {
 
         // Open the Player selection inventory if there is no Player specified
         if (args.length == 0) {
-            player.openInventory(new SpectateGUI(configurationProvider).getInventory());
+            spectateMenu.open(player, 0);
             return true;
         }
 
-        // Try to find the Player specified in the first argument
-        var targetPlayer = Bukkit.getPlayerExact(args[0]);
-        if (targetPlayer == null) {
-            player.sendMessage(configurationProvider.getString(Message.PREFIX, Message.PLAYER_NOT_ONLINE));
-            SoundUtils.playFailSound(player);
-            return false;
-        }
-
-        // Check if the Player can spectate the requested Player
-        var spectatablePlayer = SpectatablePlayerFactory.get(targetPlayer);
-        if (!spectatablePlayer.isSpectatable() || targetPlayer == player) {
-            player.sendMessage(configurationProvider.getString(Message.PREFIX, Message.INVALID_TARGET));
-            SoundUtils.playFailSound(player);
-            return false;
-        }
-
-        spectatablePlayer.startSpectating(player);
-
-        return true;
+        // Try to spectate the Player specified in the first argument
+        return spectateService.spectate(player, Bukkit.getPlayerExact(args[0]));
     }
 
     /**
      * Handles tab-completion for this command.
+     * Suggests the reload argument to senders with the permission {@value RELOAD_PERMISSION}.
      *
      * @param sender  The CommandSender which tries to tab-complete.
      * @param command The command.
@@ -90,12 +92,18 @@ public final class SpectateCommand implements CommandExecutor, TabCompleter {
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         // Return a list of names of all spectatable Players
-        return SpectatablePlayerFactory.getCachedPlayers().stream()
+        List<String> suggestions = SpectatablePlayerFactory.getCachedPlayers().stream()
                 .filter(SpectatablePlayer::isSpectatable)
                 .map(SpectatablePlayer::getBukkitPlayer)
                 .map(Player::getName)
                 .filter(suggestion -> suggestion.toLowerCase().startsWith(args[0].toLowerCase()))
-                .collect(Collectors.toList());
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        if (sender.hasPermission(RELOAD_PERMISSION) && "reload".startsWith(args[0].toLowerCase())) {
+            suggestions.add("reload");
+        }
+
+        return suggestions;
     }
 
 }
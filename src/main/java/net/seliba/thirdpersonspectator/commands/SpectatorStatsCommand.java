@@ -0,0 +1,65 @@
+package net.seliba.thirdpersonspectator.commands;
+
+import net.seliba.thirdpersonspectator.configuration.ConfigurationProvider;
+import net.seliba.thirdpersonspectator.configuration.types.Message;
+import net.seliba.thirdpersonspectator.scheduler.SpectatorScheduler;
+import net.seliba.thirdpersonspectator.utils.NMSUtils;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+/**
+ * Command which shows statistics about the spectator cameras.
+ * Intended for server owners sizing the plugin configuration.
+ */
+public final class SpectatorStatsCommand implements CommandExecutor {
+
+    private final ConfigurationProvider configurationProvider;
+    private final SpectatorScheduler spectatorScheduler;
+
+    /**
+     * The default constructor.
+     *
+     * @param configurationProvider The provider of configurations for the plugin.
+     * @param spectatorScheduler    The scheduler which updates the spectator cameras.
+     */
+    public SpectatorStatsCommand(ConfigurationProvider configurationProvider, SpectatorScheduler spectatorScheduler) {
+        this.configurationProvider = configurationProvider;
+        this.spectatorScheduler = spectatorScheduler;
+    }
+
+    /**
+     * Executes this command with the provided arguments.
+     * Sends the current camera statistics to the sender.
+     *
+     * @param sender  The sender which executes this command.
+     * @param command The Bukkit {@link org.bukkit.command.Command} representation.
+     * @param label   The label of this command.
+     * @param args    The arguments of this command.
+     * @return true if this command was executed successfully
+     */
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        var cameraSolutionCache = spectatorScheduler.getCameraSolutionCache();
+
+        sender.sendMessage(configurationProvider.getMessage(Message.STATS_SPECTATED_PLAYERS, spectatorScheduler.getActivePlayerCount()));
+        sender.sendMessage(configurationProvider.getMessage(Message.STATS_CAMERA_CACHE,
+                cameraSolutionCache.size(), cameraSolutionCache.getHitRate() * 100));
+        sender.sendMessage(configurationProvider.getMessage(Message.STATS_HEIGHTMAPS, spectatorScheduler.getHeightmapCache().size()));
+        sender.sendMessage(configurationProvider.getMessage(Message.STATS_SKIPPED_UPDATES,
+                spectatorScheduler.getSkippedUpdates(), spectatorScheduler.getBudgetOverruns()));
+        sender.sendMessage(configurationProvider.getMessage(Message.STATS_SKIPPED_INTERPOLATIONS, spectatorScheduler.getSkippedInterpolations()));
+
+        var cameraSolver = spectatorScheduler.getCameraSolver();
+        if (cameraSolver != null) {
+            sender.sendMessage(configurationProvider.getMessage(Message.STATS_OFF_THREAD_SOLVES,
+                    cameraSolver.getSolveCount(), cameraSolver.getAverageSolveMicros()));
+            sender.sendMessage(configurationProvider.getMessage(Message.STATS_CHUNK_SNAPSHOTS, spectatorScheduler.getChunkSnapshotCache().size()));
+        }
+
+        sender.sendMessage(configurationProvider.getMessage(Message.STATS_BATCHED_WRITES,
+                NMSUtils.getBatchedWrites(), NMSUtils.getSavedFlushes()));
+        return true;
+    }
+
+}
@@ -6,6 +6,10 @@ import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
 
 /**
  * Represents a yaml configuration file and offers access to it.
@@ -16,6 +20,7 @@ public class ConfigFile extends YamlConfiguration {
     private final JavaPlugin javaPlugin;
 
     private File file;
+    private volatile long savedModifiedTime = -1;
 
     /**
      * The default constructor.
@@ -52,6 +57,20 @@ public class ConfigFile extends YamlConfiguration {
         }
     }
 
+    /**
+     * Parses the current content of the file into a new configuration without modifying this one.
+     * Safe to be called off the main thread.
+     *
+     * @return The parsed configuration.
+     * @throws IOException                   If the file can't be read.
+     * @throws InvalidConfigurationException If the file isn't valid yaml.
+     */
+    public YamlConfiguration loadFromDisk() throws IOException, InvalidConfigurationException {
+        var configuration = new YamlConfiguration();
+        configuration.load(file);
+        return configuration;
+    }
+
     /**
      * Saves this configuration to the file.
      * Should be called after using {@link ConfigFile#set(String, Object)} or {@link ConfigFile#setDefault(String, Object)}.
@@ -64,16 +83,64 @@ public class ConfigFile extends YamlConfiguration {
         }
     }
 
+    /**
+     * Saves this configuration to the file using the provided executor.
+     * The configuration is serialized immediately, so it may be modified while the file is written.
+     * The modification time of the written file is remembered, see {@link ConfigFile#isUnchangedSinceSave()}.
+     *
+     * @param executor The executor which should write the file.
+     */
+    public void saveAsync(Executor executor) {
+        var content = saveToString().getBytes(StandardCharsets.UTF_8);
+
+        executor.execute(() -> {
+            try {
+                Files.createDirectories(file.toPath().getParent());
+                Files.write(file.toPath(), content);
+                savedModifiedTime = Files.getLastModifiedTime(file.toPath()).toMillis();
+            } catch (IOException exception) {
+                javaPlugin.getLogger().log(Level.WARNING, "Could not save " + name, exception);
+            }
+        });
+    }
+
+    /**
+     * Checks whether the file still has the modification time it had after the last {@link ConfigFile#saveAsync(Executor)},
+     * so file changes caused by this plugin can be told apart from external edits.
+     *
+     * @return Whether or not the file has not been modified since this plugin saved it.
+     */
+    public boolean isUnchangedSinceSave() {
+        try {
+            return savedModifiedTime == Files.getLastModifiedTime(file.toPath()).toMillis();
+        } catch (IOException exception) {
+            return false;
+        }
+    }
+
     /**
      * Sets the value under the specified path to the provided value if it doesn't already exist.
      *
      * @param path  The path where the value may be stored.
      * @param value The default value which should be set if the path doesn't contain any value.
+     * @return Whether or not the default value has been set.
      */
-    public void setDefault(String path, Object value) {
+    public boolean setDefault(String path, Object value) {
         if (!isSet(path)) {
             set(path, value);
+            return true;
         }
+
+        return false;
+    }
+
+    /**
+     * Returns the file containing this configuration.
+     *
+     * @return The file of this configuration.
+     */
+    public File getFile() {
+        return file;
     }
 
-}
\ No newline at end of file
+}
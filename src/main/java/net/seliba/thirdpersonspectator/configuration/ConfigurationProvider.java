@@ -1,22 +1,74 @@
 package net.seliba.thirdpersonspectator.configuration;
 
 import net.seliba.thirdpersonspectator.configuration.types.IConfiguration;
-import org.bukkit.ChatColor;
+import net.seliba.thirdpersonspectator.configuration.types.Message;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchService;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Provides access to configuration entries after registering the configs.
+ * Values are read from an immutable {@link ConfigurationSnapshot}, which is compiled once after saving the defaults
+ * and replaced atomically by {@link ConfigurationProvider#reload()}.
+ * <p>
+ * Files are written and reloaded on a separate I/O thread, so slow storage never stalls the main thread.
+ * New snapshots are published on the main thread.
  *
  * @see IConfiguration
  */
 public final class ConfigurationProvider {
 
+    /*
+    Editors often write a file in several steps, so reloads wait until the files didn't change for this long.
+     */
+    private static final long WATCH_DEBOUNCE_MILLIS = 500;
+
     private final Map<Class<? extends IConfiguration>, ConfigFile> configurationFiles = new HashMap<>();
+    private final Map<Class<? extends IConfiguration>, IConfiguration[]> configurationEntries = new HashMap<>();
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+
+    private final Logger logger;
+    private final Executor mainThreadExecutor;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "ThirdPersonSpectator Config I/O");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ConfigurationSnapshot snapshot;
+    private WatchService watchService;
+
+    /**
+     * The default constructor.
+     *
+     * @param logger             The logger invalid configurations should be reported to.
+     * @param mainThreadExecutor The executor running tasks on the main thread, used to publish reloaded values.
+     */
+    public ConfigurationProvider(Logger logger, Executor mainThreadExecutor) {
+        this.logger = logger;
+        this.mainThreadExecutor = mainThreadExecutor;
+    }
 
     /**
      * Registers a configuration and the associated file containing its data.
@@ -29,48 +81,145 @@ public final class ConfigurationProvider {
     }
 
     /**
-     * Saves the config entries to the config file if necessary.
+     * Saves the config entries to the config file if any of them were missing and compiles a new snapshot containing them.
+     * The file is written on the I/O thread.
      * {@link ConfigurationProvider#register(Class, ConfigFile)} should be called first.
      *
      * @param configurationEntries The configuration entries which should be saved.
      */
     public void saveDefaultConfig(IConfiguration[] configurationEntries) {
         assert configurationEntries.length > 0;
-        var configFile = this.configurationFiles.get(configurationEntries[0].getClass());
+        var configurationClass = configurationEntries[0].getClass();
+        var configFile = this.configurationFiles.get(configurationClass);
 
-        for (IConfiguration configurationEntry : configurationEntries) {
-            configFile.setDefault(configurationEntry.getConfigKey(), configurationEntry.getDefaultValue());
+        if (applyDefaults(configFile, configurationEntries)) {
+            configFile.saveAsync(ioExecutor);
+        }
+
+        this.configurationEntries.put(configurationClass, configurationEntries);
+        this.snapshot = ConfigurationSnapshot.compile(configurationFiles, this.configurationEntries, logger);
+    }
+
+    /**
+     * Reloads all registered config files on the I/O thread and publishes a newly compiled snapshot on the main thread.
+     * Missing entries fall back to their default values without rewriting the files.
+     * Registered reload listeners are run on the main thread after publishing.
+     * The current values are kept if any file can't be parsed.
+     *
+     * @return A future completed on the main thread with whether or not the new values have been published,
+     * completed exceptionally if the plugin has been disabled in the meantime.
+     */
+    public CompletableFuture<Boolean> reload() {
+        var published = new CompletableFuture<Boolean>();
+
+        try {
+            CompletableFuture.supplyAsync(this::compileFromDisk, ioExecutor).whenComplete((newSnapshot, exception) -> {
+                try {
+                    mainThreadExecutor.execute(() -> published.complete(publish(newSnapshot, exception)));
+                } catch (RuntimeException rejected) {
+                    // The main thread doesn't accept tasks of disabled plugins
+                    published.completeExceptionally(rejected);
+                }
+            });
+        } catch (RejectedExecutionException rejected) {
+            published.completeExceptionally(rejected);
+        }
+
+        return published;
+    }
+
+    /**
+     * Watches the directories of all registered config files and reloads them after external edits.
+     * The directories are watched on a separate daemon thread until {@link ConfigurationProvider#close()} is called.
+     */
+    public void watchFiles() {
+        var watchedFiles = new HashMap<Path, ConfigFile>();
+
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+
+            for (ConfigFile configFile : configurationFiles.values()) {
+                var path = configFile.getFile().toPath().toAbsolutePath();
+
+                if (watchedFiles.putIfAbsent(path, configFile) == null) {
+                    path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                }
+            }
+        } catch (IOException exception) {
+            logger.log(Level.WARNING, "Could not watch the config files, changes have to be reloaded manually", exception);
+            return;
+        }
+
+        var watchThread = new Thread(() -> watchFiles(watchService, watchedFiles), "ThirdPersonSpectator Config Watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Stops watching the config files and waits for pending writes to finish.
+     * Should be called when the plugin is disabled.
+     */
+    public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException exception) {
+                // The watcher thread stops anyway
+            }
         }
 
-        configFile.save();
+        ioExecutor.shutdown();
+        try {
+            if (!ioExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Could not finish writing the config files in time");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Registers a listener which is run every time the configuration has been reloaded.
+     *
+     * @param reloadListener The listener which should be run after reloading.
+     */
+    public void addReloadListener(Runnable reloadListener) {
+        reloadListeners.add(reloadListener);
     }
 
     /**
-     * Returns the colored String values of the provided config entries.
-     * Is able to join multiple config entries as long as they are from the same configuration sub-class.
+     * Returns the colored String value of the provided config entry.
      *
-     * @param configEntries The config entries which should be accessed. Should be of the same type.
-     * @return The colored and joined values of the config entries.
+     * @param configEntry The config entry which should be accessed.
+     * @return The colored value of the config entry.
      */
-    public String getString(IConfiguration... configEntries) {
-        assert configEntries.length > 0;
-        var configFile = configurationFiles.get(configEntries[0].getClass());
+    public String getString(IConfiguration configEntry) {
+        return (String) snapshot.getValue(configEntry);
+    }
 
-        return Arrays.stream(configEntries)
-                .map(IConfiguration::getConfigKey)
-                .map(configFile::getString)
-                .map(this::colorString)
-                .collect(Collectors.joining());
+    /**
+     * Returns the colored value of the provided message with the prefix applied.
+     *
+     * @param message The message which should be accessed.
+     * @return The colored and prefixed message.
+     */
+    public String getMessage(Message message) {
+        return snapshot.getPrefixedMessage(message);
     }
 
     /**
-     * Colors a String using the Bukkit color system.
+     * Returns the colored value of the provided message with the prefix applied and its placeholders replaced.
+     * Placeholders are the format specifiers of {@link String#format(String, Object...)}, e.g. %d.
      *
-     * @param originalString The String which should be colored.
-     * @return The String with applied colors.
+     * @param message   The message which should be accessed.
+     * @param arguments The values of the placeholders, in the order they appear in the default message.
+     * @return The colored and prefixed message.
      */
-    private String colorString(String originalString) {
-        return ChatColor.translateAlternateColorCodes('&', originalString);
+    public String getMessage(Message message, Object... arguments) {
+        var currentSnapshot = snapshot;
+
+        // Only the message itself is formatted, so the prefix may contain percent signs
+        return currentSnapshot.getValue(Message.PREFIX) + String.format((String) currentSnapshot.getValue(message), arguments);
     }
 
     /**
@@ -80,22 +229,149 @@ public final class ConfigurationProvider {
      * @return The value of the config entry.
      */
     public long getLong(IConfiguration configEntry) {
-        var configFile = configurationFiles.get(configEntry.getClass());
-        return configFile.getLong(configEntry.getConfigKey());
+        return ((Number) snapshot.getValue(configEntry)).longValue();
+    }
+
+    /**
+     * Returns the Double value of the provided config entry.
+     *
+     * @param configEntry The config entry which should be accessed.
+     * @return The value of the config entry.
+     */
+    public double getDouble(IConfiguration configEntry) {
+        return ((Number) snapshot.getValue(configEntry)).doubleValue();
+    }
+
+    /**
+     * Returns the Boolean value of the provided config entry.
+     *
+     * @param configEntry The config entry which should be accessed.
+     * @return The value of the config entry.
+     */
+    public boolean getBoolean(IConfiguration configEntry) {
+        return (Boolean) snapshot.getValue(configEntry);
     }
 
     /**
      * Returns a list of the colored values of the provided config entry.
+     * The returned list is shared and can't be modified.
      *
      * @param configEntry The config entry which should be accessed.
      * @return The value of the config entry.
      */
+    @SuppressWarnings("unchecked")
     public List<String> getStringList(IConfiguration configEntry) {
-        var configFile = configurationFiles.get(configEntry.getClass());
+        return (List<String>) snapshot.getValue(configEntry);
+    }
+
+    /**
+     * Parses all registered config files and compiles their values.
+     * Runs on the I/O thread and doesn't modify the registered files.
+     *
+     * @return The compiled snapshot.
+     * @throws CompletionException If a file can't be read or parsed.
+     */
+    private ConfigurationSnapshot compileFromDisk() {
+        var configurations = new HashMap<Class<? extends IConfiguration>, YamlConfiguration>();
+
+        for (var entries : configurationEntries.entrySet()) {
+            try {
+                var configuration = configurationFiles.get(entries.getKey()).loadFromDisk();
+
+                for (IConfiguration configurationEntry : entries.getValue()) {
+                    if (!configuration.isSet(configurationEntry.getConfigKey())) {
+                        configuration.set(configurationEntry.getConfigKey(), configurationEntry.getDefaultValue());
+                    }
+                }
+
+                configurations.put(entries.getKey(), configuration);
+            } catch (IOException | InvalidConfigurationException exception) {
+                throw new CompletionException(exception);
+            }
+        }
+
+        return ConfigurationSnapshot.compile(configurations, configurationEntries, logger);
+    }
+
+    /**
+     * Publishes a snapshot compiled by {@link ConfigurationProvider#compileFromDisk()} and runs the reload listeners.
+     * Has to be called on the main thread.
+     *
+     * @param newSnapshot The compiled snapshot, null if compiling failed.
+     * @param exception   The exception thrown while compiling, null if it succeeded.
+     * @return Whether or not the snapshot has been published.
+     */
+    private boolean publish(ConfigurationSnapshot newSnapshot, Throwable exception) {
+        if (exception != null) {
+            logger.log(Level.WARNING, "Could not reload the configuration, keeping the current values", exception.getCause());
+            return false;
+        }
+
+        this.snapshot = newSnapshot;
+        reloadListeners.forEach(Runnable::run);
+        return true;
+    }
+
+    /**
+     * Reloads the configuration whenever one of the watched files changes.
+     * Changes written by {@link ConfigFile#saveAsync(Executor)} itself are ignored.
+     * Runs on the watcher thread until the WatchService is closed.
+     *
+     * @param watchService The WatchService the directories of the files are registered in.
+     * @param watchedFiles The files which should trigger a reload.
+     */
+    private void watchFiles(WatchService watchService, Map<Path, ConfigFile> watchedFiles) {
+        var changedFiles = new HashSet<ConfigFile>();
+
+        try {
+            while (true) {
+                var watchKey = watchService.take();
+
+                // Wait until the files stopped changing
+                while (watchKey != null) {
+                    var directory = (Path) watchKey.watchable();
+
+                    for (WatchEvent<?> event : watchKey.pollEvents()) {
+                        if (event.context() instanceof Path) {
+                            var configFile = watchedFiles.get(directory.resolve((Path) event.context()));
+
+                            if (configFile != null) {
+                                changedFiles.add(configFile);
+                            }
+                        }
+                    }
+
+                    watchKey.reset();
+                    watchKey = watchService.poll(WATCH_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                changedFiles.removeIf(ConfigFile::isUnchangedSinceSave);
+                if (!changedFiles.isEmpty()) {
+                    changedFiles.clear();
+                    logger.info("Detected changes in the config files, reloading");
+                    reload();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException exception) {
+            // The plugin has been disabled
+        }
+    }
+
+    /**
+     * Sets the default values of the provided config entries in memory if they are missing.
+     *
+     * @param configFile           The file the defaults should be applied to.
+     * @param configurationEntries The config entries whose defaults should be applied.
+     * @return Whether or not any default value has been set.
+     */
+    private boolean applyDefaults(ConfigFile configFile, IConfiguration[] configurationEntries) {
+        boolean changed = false;
+
+        for (IConfiguration configurationEntry : configurationEntries) {
+            changed |= configFile.setDefault(configurationEntry.getConfigKey(), configurationEntry.getDefaultValue());
+        }
 
-        return configFile.getStringList(configEntry.getConfigKey()).stream()
-                .map(this::colorString)
-                .collect(Collectors.toList());
+        return changed;
     }
 
 }
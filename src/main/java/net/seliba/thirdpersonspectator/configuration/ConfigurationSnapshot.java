@@ -0,0 +1,155 @@
+package net.seliba.thirdpersonspectator.configuration;
+
+import net.seliba.thirdpersonspectator.configuration.types.IConfiguration;
+import net.seliba.thirdpersonspectator.configuration.types.Message;
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, compiled values of all registered configurations.
+ * Every value is converted to the type of its default value and colored once while compiling,
+ * so reading a value is an array access indexed by the ordinal of the config entry.
+ * Messages are additionally stored with the prefix already applied.
+ * <p>
+ * Compiling only reads the provided configurations, so snapshots may be compiled off the main thread.
+ */
+final class ConfigurationSnapshot {
+
+    private final Map<Class<? extends IConfiguration>, Object[]> values;
+    private final String[] prefixedMessages;
+
+    /**
+     * The default constructor.
+     *
+     * @param values           The compiled values of every configuration, indexed by the ordinal of their entries.
+     * @param prefixedMessages The colored messages with the prefix applied, indexed by the ordinal of the {@link Message}.
+     */
+    private ConfigurationSnapshot(Map<Class<? extends IConfiguration>, Object[]> values, String[] prefixedMessages) {
+        this.values = values;
+        this.prefixedMessages = prefixedMessages;
+    }
+
+    /**
+     * Compiles the current values of the provided configurations.
+     * Values which don't match the type of their default value are replaced by the default value.
+     *
+     * @param configurations       The configurations containing the values of every configuration class.
+     * @param configurationEntries The entries of every configuration.
+     * @param logger               The logger invalid values should be reported to.
+     * @return The new snapshot.
+     */
+    static ConfigurationSnapshot compile(Map<Class<? extends IConfiguration>, ? extends ConfigurationSection> configurations,
+                                         Map<Class<? extends IConfiguration>, IConfiguration[]> configurationEntries,
+                                         Logger logger) {
+        var values = new HashMap<Class<? extends IConfiguration>, Object[]>();
+
+        for (var entries : configurationEntries.entrySet()) {
+            var configuration = configurations.get(entries.getKey());
+            var compiledValues = new Object[entries.getValue().length];
+
+            for (IConfiguration configEntry : entries.getValue()) {
+                var value = configuration.get(configEntry.getConfigKey());
+
+                if (!isValid(value, configEntry.getDefaultValue())) {
+                    logger.warning("Invalid value for " + configEntry.getConfigKey() + ", using the default value");
+                    value = configEntry.getDefaultValue();
+                }
+
+                compiledValues[configEntry.ordinal()] = compileValue(value, configEntry.getDefaultValue());
+            }
+
+            values.put(entries.getKey(), compiledValues);
+        }
+
+        // Almost every message is sent with the prefix, so it is applied once here
+        var messageValues = values.get(Message.class);
+        var prefixedMessages = new String[messageValues == null ? 0 : messageValues.length];
+        for (int ordinal = 0; ordinal < prefixedMessages.length; ordinal++) {
+            prefixedMessages[ordinal] = (String) messageValues[Message.PREFIX.ordinal()] + messageValues[ordinal];
+        }
+
+        return new ConfigurationSnapshot(values, prefixedMessages);
+    }
+
+    /**
+     * Returns the compiled value of the provided config entry.
+     *
+     * @param configEntry The config entry which should be accessed.
+     * @return The value of the config entry.
+     */
+    Object getValue(IConfiguration configEntry) {
+        return values.get(configEntry.getClass())[configEntry.ordinal()];
+    }
+
+    /**
+     * Returns the colored message with the prefix applied.
+     *
+     * @param message The message which should be accessed.
+     * @return The prefixed message.
+     */
+    String getPrefixedMessage(Message message) {
+        return prefixedMessages[message.ordinal()];
+    }
+
+    /**
+     * Checks whether the provided value matches the type of the default value of its config entry.
+     *
+     * @param value        The value which should be checked.
+     * @param defaultValue The default value of the config entry.
+     * @return Whether or not the value can be compiled.
+     */
+    private static boolean isValid(Object value, Object defaultValue) {
+        if (defaultValue instanceof Boolean) {
+            return value instanceof Boolean;
+        } else if (defaultValue instanceof Number) {
+            return value instanceof Number;
+        } else if (defaultValue instanceof List) {
+            return value instanceof List;
+        }
+
+        return value != null && !(value instanceof ConfigurationSection) && !(value instanceof List);
+    }
+
+    /**
+     * Converts the provided value to the type of the default value.
+     * Strings and lists of Strings are colored.
+     *
+     * @param value        The valid value which should be compiled.
+     * @param defaultValue The default value of the config entry.
+     * @return The compiled value.
+     */
+    private static Object compileValue(Object value, Object defaultValue) {
+        if (defaultValue instanceof Boolean) {
+            return value;
+        } else if (defaultValue instanceof Double || defaultValue instanceof Float) {
+            return ((Number) value).doubleValue();
+        } else if (defaultValue instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (defaultValue instanceof List) {
+            return ((List<?>) value).stream()
+                    .map(String::valueOf)
+                    .map(ConfigurationSnapshot::colorString)
+                    .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
+        }
+
+        return colorString(String.valueOf(value));
+    }
+
+    /**
+     * Colors a String using the Bukkit color system.
+     *
+     * @param originalString The String which should be colored.
+     * @return The String with applied colors.
+     */
+    private static String colorString(String originalString) {
+        return ChatColor.translateAlternateColorCodes('&', originalString);
+    }
+
+}
@@ -22,4 +22,12 @@ public interface IConfiguration {
      */
     Object getDefaultValue();
 
+    /**
+     * The position of this config entry within its configuration.
+     * Implemented by enums, used to index the compiled values of a configuration.
+     *
+     * @return The index of this config entry.
+     */
+    int ordinal();
+
 }
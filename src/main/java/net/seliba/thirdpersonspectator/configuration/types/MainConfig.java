@@ -1,5 +1,6 @@
 package net.seliba.thirdpersonspectator.configuration.types;
 
+import java.util.Arrays;
 import java.util.Collections;
 
 /**
@@ -32,7 +33,122 @@ public enum MainConfig implements IConfiguration {
     /**
      * Name of the item which skips the next page in a {@link net.seliba.thirdpersonspectator.gui.GUI}.
      */
-    NEXT_PAGE_BUTTON("gui.next-button-name", "&bNext Page");
+    NEXT_PAGE_BUTTON("gui.next-button-name", "&bNext Page"),
+
+    /**
+     * The names of the Materials the camera can look and move through.
+     * Unknown names are ignored.
+     *
+     * @see net.seliba.thirdpersonspectator.utils.MaterialUtils
+     */
+    TRANSPARENT_MATERIALS("camera.transparent-materials", Arrays.asList(
+            "AIR",
+            "CAVE_AIR",
+            "VOID_AIR",
+            "TALL_GRASS",
+            "SUNFLOWER",
+            "PEONY",
+            "LILAC",
+            "ROSE_BUSH",
+            "WATER",
+            "TALL_SEAGRASS",
+            "SEAGRASS",
+            "GRASS",
+            "FERN",
+            "LARGE_FERN",
+            "KELP_PLANT",
+            "SUGAR_CANE"
+    )),
+
+    /**
+     * Whether cameras should only be recalculated after their Player moved or teleported.
+     * Cameras are polled every tick otherwise.
+     */
+    CAMERA_DIRTY_TRACKING("camera.dirty-tracking", false),
+
+    /**
+     * The distance in blocks a Player has to move before his camera is recalculated.
+     */
+    CAMERA_POSITION_EPSILON("camera.position-epsilon", 0.01),
+
+    /**
+     * The angle in degrees a Player has to turn before his camera is recalculated.
+     */
+    CAMERA_ROTATION_EPSILON("camera.rotation-epsilon", 0.5),
+
+    /**
+     * The amount of relative camera moves after which the camera is teleported to resynchronize the clients.
+     * Moves further than 8 blocks are always sent as a teleport.
+     */
+    CAMERA_TELEPORT_INTERVAL("camera.teleport-interval", 100L),
+
+    /**
+     * The amount of ticks between two camera calculations.
+     * The camera is moved smoothly towards the calculated Location in the ticks between.
+     */
+    CAMERA_UPDATE_INTERVAL("camera.update-interval", 1L),
+
+    /**
+     * Whether spectators should only be teleported after the camera crossed a chunk border or moved too far away.
+     * Spectators are teleported with every camera movement otherwise.
+     */
+    CAMERA_LAZY_SPECTATOR_RELOCATION("camera.lazy-spectator-relocation", false),
+
+    /**
+     * The horizontal distance in blocks the camera may move away from the spectators before they are teleported.
+     * Only used with lazy spectator relocation.
+     */
+    CAMERA_SPECTATOR_RELOCATION_RADIUS("camera.spectator-relocation-radius", 8.0),
+
+    /**
+     * The maximum amount of camera solutions which are cached, 0 disables the cache.
+     *
+     * @see net.seliba.thirdpersonspectator.model.CameraSolutionCache
+     */
+    CAMERA_CACHE_SIZE("camera.cache.size", 1024L),
+
+    /**
+     * The angle in degrees the rotation of Players is rounded to for the camera solution cache.
+     */
+    CAMERA_CACHE_ANGLE_STEP("camera.cache.angle-step", 5.0),
+
+    /**
+     * Whether the camera should be placed on a spring arm which remembers its length between updates.
+     * The arm is shortened immediately by obstructions and grows back smoothly afterwards.
+     */
+    CAMERA_SPRING_ARM("camera.spring-arm.enabled", false),
+
+    /**
+     * The distance in blocks the spring arm may grow per camera update.
+     */
+    CAMERA_SPRING_ARM_EXTENSION_SPEED("camera.spring-arm.extension-speed", 0.5),
+
+    /**
+     * Whether cameras should be solved on a worker thread using snapshots of the chunks around the spectated Players.
+     * Only the packets are sent on the main thread then.
+     */
+    CAMERA_ASYNC_SOLVING("camera.async-solving", false),
+
+    /**
+     * The amount of spectated Players above which cameras are solved in parallel off the main thread, 0 disables it.
+     */
+    CAMERA_PARALLEL_SOLVING_THRESHOLD("camera.parallel-solving.threshold", 0L),
+
+    /**
+     * The amount of threads solving cameras off the main thread, 0 uses all but one of the available cores.
+     */
+    CAMERA_PARALLEL_SOLVING_THREADS("camera.parallel-solving.threads", 0L),
+
+    /**
+     * The time in milliseconds cameras may be moved and calculated on the main thread per tick, 0 disables the budget.
+     * Cameras which don't fit into the budget are moved or calculated in one of the next ticks.
+     */
+    CAMERA_TICK_BUDGET("camera.tick-budget", 0.0),
+
+    /**
+     * Whether the config files should be reloaded automatically after they have been edited.
+     */
+    WATCH_CONFIG_FILES("watch-config-files", true);
 
     private final String configKey;
     private final Object defaultValue;
@@ -8,8 +8,8 @@ public enum Message implements IConfiguration {
 
     /**
      * The prefix used in the chat.
-     * Has to be applied manually.
-     * @see net.seliba.thirdpersonspectator.configuration.ConfigurationProvider#getString(IConfiguration...)
+     * Applied automatically to messages sent through the provider.
+     * @see net.seliba.thirdpersonspectator.configuration.ConfigurationProvider#getMessage(Message)
      */
     PREFIX("prefix", "&9&lSpectator &r&7» "),
 
@@ -31,7 +31,65 @@ public enum Message implements IConfiguration {
     /**
      * Message which is sent when a Player can't switch his GameMode because he is in the third-person spectator view.
      */
-    GAMEMODE_CHANGE_NOT_ALLOWED("gamemode-change-not-allowed", "&cYou're not allowed to change your gamemode!");
+    GAMEMODE_CHANGE_NOT_ALLOWED("gamemode-change-not-allowed", "&cYou're not allowed to change your gamemode!"),
+
+    /**
+     * Message which is sent after the configuration has been reloaded.
+     */
+    RELOAD_SUCCESS("reload-success", "&aThe configuration has been reloaded!"),
+
+    /**
+     * Message which is sent when the configuration couldn't be reloaded, e.g. because of invalid yaml.
+     */
+    RELOAD_FAILED("reload-failed", "&cThe configuration couldn't be reloaded, check the console!"),
+
+    /**
+     * Statistic about the amount of spectated Players.
+     * Placeholders: amount of Players.
+     */
+    STATS_SPECTATED_PLAYERS("stats.spectated-players", "&7Spectated players: &6%d"),
+
+    /**
+     * Statistic about the camera solution cache.
+     * Placeholders: amount of cached solutions, hit rate in percent.
+     */
+    STATS_CAMERA_CACHE("stats.camera-cache", "&7Camera cache: &6%d &7solutions, &6%.1f%% &7hit rate"),
+
+    /**
+     * Statistic about the heightmap cache.
+     * Placeholders: amount of cached heightmaps.
+     */
+    STATS_HEIGHTMAPS("stats.heightmaps", "&7Cached heightmaps: &6%d"),
+
+    /**
+     * Statistic about camera updates which didn't fit into the tick budget.
+     * Placeholders: amount of skipped updates, amount of budget overruns.
+     */
+    STATS_SKIPPED_UPDATES("stats.skipped-updates", "&7Skipped camera updates: &6%d &7(&6%d &7budget overruns)"),
+
+    /**
+     * Statistic about interpolation steps which didn't fit into the tick budget.
+     * Placeholders: amount of skipped interpolation steps.
+     */
+    STATS_SKIPPED_INTERPOLATIONS("stats.skipped-interpolations", "&7Skipped interpolation steps: &6%d"),
+
+    /**
+     * Statistic about cameras solved off the main thread, only sent if async or parallel solving is enabled.
+     * Placeholders: amount of solved cameras, average solving time in microseconds.
+     */
+    STATS_OFF_THREAD_SOLVES("stats.off-thread-solves", "&7Off-thread solves: &6%d &7(&6%.1f µs &7average)"),
+
+    /**
+     * Statistic about the chunk snapshot cache, only sent if async or parallel solving is enabled.
+     * Placeholders: amount of cached snapshots.
+     */
+    STATS_CHUNK_SNAPSHOTS("stats.chunk-snapshots", "&7Chunk snapshots: &6%d"),
+
+    /**
+     * Statistic about batched camera packets.
+     * Placeholders: amount of batched writes, amount of saved flushes.
+     */
+    STATS_BATCHED_WRITES("stats.batched-writes", "&7Batched packet writes: &6%d &7(&6%d &7flushes saved)");
 
     private final String configKey;
     private final Object defaultValue;
@@ -0,0 +1,102 @@
+package net.seliba.thirdpersonspectator.gui;
+
+import net.seliba.thirdpersonspectator.configuration.ConfigurationProvider;
+import net.seliba.thirdpersonspectator.configuration.types.MainConfig;
+import net.seliba.thirdpersonspectator.utils.ItemBuilder;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cache of the finished skull ItemStacks representing Players in the {@link SpectateGUI}.
+ * Skulls are built once per Player, usually when he joins, and only handed out as clones,
+ * so the skull owner and lore are not applied again whenever a page changes.
+ * <p>
+ * Entries are rebuilt if the name of their Player changed and should be evicted when he quits.
+ * Should only be accessed from the main thread.
+ */
+public final class SkullCache {
+
+    private final ConfigurationProvider configurationProvider;
+
+    private final Map<UUID, CachedSkull> skulls = new HashMap<>();
+
+    /**
+     * The default constructor.
+     *
+     * @param configurationProvider The provider of configurations for the plugin.
+     */
+    public SkullCache(ConfigurationProvider configurationProvider) {
+        this.configurationProvider = configurationProvider;
+    }
+
+    /**
+     * Returns a clone of the skull representing the provided Player.
+     * Builds the skull if it isn't cached yet.
+     *
+     * @param player The Player whose skull should be returned.
+     * @return A new ItemStack representing this Player.
+     */
+    public ItemStack get(Player player) {
+        var cachedSkull = skulls.get(player.getUniqueId());
+
+        if (cachedSkull == null || !cachedSkull.name.equals(player.getName())) {
+            cachedSkull = new CachedSkull(player.getName(), createSkull(player));
+            skulls.put(player.getUniqueId(), cachedSkull);
+        }
+
+        return cachedSkull.itemStack.clone();
+    }
+
+    /**
+     * Removes the skull of the provided Player.
+     * Called in the {@link net.seliba.thirdpersonspectator.listener.PlayerQuitListener}.
+     *
+     * @param player The Player whose skull should be removed.
+     */
+    public void invalidate(Player player) {
+        skulls.remove(player.getUniqueId());
+    }
+
+    /**
+     * Removes all skulls, e.g. because the configured lore changed.
+     */
+    public void clear() {
+        skulls.clear();
+    }
+
+    /**
+     * Creates the ItemStack representation of a Player.
+     * The name may only contain the Player's name and color codes.
+     *
+     * @param player The Player who should be represented.
+     * @return The skull of the Player.
+     */
+    private ItemStack createSkull(Player player) {
+        return new ItemBuilder(Material.PLAYER_HEAD)
+                .name("§6" + player.getName())
+                .lore(configurationProvider.getStringList(MainConfig.INVENTORY_LORE))
+                .skullOwner(player)
+                .build();
+    }
+
+    /**
+     * A skull and the name of the Player it was built for.
+     */
+    private static final class CachedSkull {
+
+        private final String name;
+        private final ItemStack itemStack;
+
+        private CachedSkull(String name, ItemStack itemStack) {
+            this.name = name;
+            this.itemStack = itemStack;
+        }
+
+    }
+
+}
@@ -3,11 +3,10 @@ package net.seliba.thirdpersonspectator.gui;
 import net.seliba.thirdpersonspectator.configuration.ConfigurationProvider;
 import net.seliba.thirdpersonspectator.configuration.types.MainConfig;
 import net.seliba.thirdpersonspectator.model.SpectatablePlayer;
-import net.seliba.thirdpersonspectator.model.SpectatablePlayerFactory;
+import net.seliba.thirdpersonspectator.model.SpectateService;
 import net.seliba.thirdpersonspectator.utils.ItemBuilder;
 import net.seliba.thirdpersonspectator.utils.SoundUtils;
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
@@ -16,48 +15,40 @@ import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
 /**
- * Paginated GUI which shows all {@link SpectatablePlayer}s which can be spectated.
+ * A single page of the paginated GUI which shows all {@link SpectatablePlayer}s which can be spectated.
+ * The Inventory of a page is shared by all of its viewers and filled by the {@link SpectateMenu}.
  */
 public final class SpectateGUI implements GUI {
 
-    private final ConfigurationProvider configurationProvider;
-    private int currentPage = 1;
+    private final SpectateMenu spectateMenu;
+    private final SpectateService spectateService;
+    private final int pageIndex;
+    private final int inventorySize;
+    private final Inventory inventory;
 
     /**
      * The default constructor.
+     * Creates the Inventory of this page containing the pagination buttons.
      *
+     * @param spectateMenu          The menu this page belongs to.
      * @param configurationProvider The provider of configurations for the plugin.
+     * @param spectateService       The service which lets Players spectate the clicked Players.
+     * @param pageIndex             The index of this page starting at 0.
      */
-    public SpectateGUI(ConfigurationProvider configurationProvider) {
-        this.configurationProvider = configurationProvider;
-    }
+    SpectateGUI(SpectateMenu spectateMenu, ConfigurationProvider configurationProvider, SpectateService spectateService,
+                int pageIndex) {
+        this.spectateMenu = spectateMenu;
+        this.spectateService = spectateService;
+        this.pageIndex = pageIndex;
 
-    /**
-     * Returns a new Inventory with the content of this GUI.
-     *
-     * @return New Inventory with content.
-     */
-    @NotNull
-    @Override
-    public Inventory getInventory() {
         // Initialize the Inventory
-        long inventorySize = configurationProvider.getLong(MainConfig.INVENTORY_SIZE);
-        long entriesPerPage = (int) (inventorySize - 9);
-        Inventory inventory = Bukkit.createInventory(
+        this.inventorySize = (int) configurationProvider.getLong(MainConfig.INVENTORY_SIZE);
+        this.inventory = Bukkit.createInventory(
                 this,
-                (int) inventorySize,
+                inventorySize,
                 configurationProvider.getString(MainConfig.INVENTORY_NAME)
         );
 
-        // Find all Players that should be on this page and put representative ItemStacks in the Inventory
-        SpectatablePlayerFactory.getCachedPlayers().stream()
-                .filter(SpectatablePlayer::isSpectatable)
-                .skip((currentPage - 1) * entriesPerPage)
-                .limit(entriesPerPage)
-                .map(SpectatablePlayer::getBukkitPlayer)
-                .map(this::getPlayerItem)
-                .forEach(inventory::addItem);
-
         // Add pagination items to the Inventory
         ItemStack previousPageItem = new ItemBuilder(Material.ARROW)
                 .name(configurationProvider.getString(MainConfig.PREVIOUS_PAGE_BUTTON))
@@ -65,25 +56,28 @@ public final class SpectateGUI implements GUI {
         ItemStack nextPageItem = new ItemBuilder(Material.ARROW)
                 .name(configurationProvider.getString(MainConfig.NEXT_PAGE_BUTTON))
                 .build();
-        inventory.setItem((int) entriesPerPage, previousPageItem);
-        inventory.setItem((int) (inventorySize - 1), nextPageItem);
+        inventory.setItem(inventorySize - 9, previousPageItem);
+        inventory.setItem(inventorySize - 1, nextPageItem);
+    }
 
+    /**
+     * Returns the shared Inventory of this page.
+     *
+     * @return The Inventory with the current content of this page.
+     */
+    @NotNull
+    @Override
+    public Inventory getInventory() {
         return inventory;
     }
 
     /**
-     * Returns the ItemStack representation of the provided Player.
-     * The name may only contain {@link Player#getName()} and color codes.
+     * Returns the index of this page.
      *
-     * @param player The Player whose ItemStack should be returned.
-     * @return A new ItemStack representing this Player.
+     * @return The index of this page starting at 0.
      */
-    private ItemStack getPlayerItem(Player player) {
-        return new ItemBuilder(Material.PLAYER_HEAD)
-                .name("§6" + player.getName())
-                .lore(configurationProvider.getStringList(MainConfig.INVENTORY_LORE).toArray(String[]::new))
-                .skullOwner(player)
-                .build();
+    public int getPageIndex() {
+        return pageIndex;
     }
 
     /**
@@ -99,7 +93,7 @@ public final class SpectateGUI implements GUI {
 
         // Check for items we care about
         if (clickedItem.getType() == Material.PLAYER_HEAD) {
-            handlePlayerClick(player, clickedItem);
+            handlePlayerClick(player, event.getSlot());
         } else if (clickedItem.getType() == Material.ARROW) {
             handleButtonClick(player, event.getSlot());
         }
@@ -107,55 +101,40 @@ public final class SpectateGUI implements GUI {
 
     /**
      * Handles a click on a Player skull.
-     * Spectates the clicked Player if possible.
+     * Spectates the Player shown in the clicked slot if possible.
      *
      * @param player      The Player who clicked on the item.
-     * @param clickedItem The ItemStack which was clicked.
+     * @param clickedSlot The slot which was clicked by the Player.
      */
-    private void handlePlayerClick(Player player, ItemStack clickedItem) {
-        player.closeInventory();
+    private void handlePlayerClick(Player player, int clickedSlot) {
+        var targetId = spectateMenu.getTarget(pageIndex, clickedSlot);
+
+        if (targetId == null) {
+            SoundUtils.playFailSound(player);
+            return;
+        }
 
-        // Execute the spectate command for the clicked Player
-        String targetPlayerName = getPlayerNameByItem(clickedItem);
-        player.performCommand("spectate " + targetPlayerName);
+        player.closeInventory();
+        spectateService.spectate(player, Bukkit.getPlayer(targetId));
     }
 
     /**
      * Handles a click on a pagination button.
-     * Opens the next or previous site of this GUI if available.
+     * Opens the next or previous page of the menu if available.
      *
      * @param player      The Player requesting the other page
      * @param clickedSlot The slot which was clicked by the Player.
      */
     private void handleButtonClick(Player player, int clickedSlot) {
-        long inventorySize = configurationProvider.getLong(MainConfig.INVENTORY_SIZE);
-        long entriesPerPage = (int) (inventorySize - 9);
-        long spectatablePlayerAmount = SpectatablePlayerFactory.getCachedPlayers().stream().filter(SpectatablePlayer::isSpectatable).count();
-        int maxPages = (int) Math.ceil(spectatablePlayerAmount / (double) entriesPerPage);
-
         // Open the requested page if available
-        if (clickedSlot == entriesPerPage && currentPage != 1) {
-            this.currentPage--;
-            player.openInventory(this.getInventory());
-        } else if (clickedSlot == inventorySize - 1 && maxPages != currentPage) {
-            this.currentPage++;
-            player.openInventory(this.getInventory());
-        } else {
-            // Requested page not available
-            SoundUtils.playFailSound(player);
+        if (clickedSlot == inventorySize - 9 && spectateMenu.open(player, pageIndex - 1)) {
+            return;
+        } else if (clickedSlot == inventorySize - 1 && spectateMenu.open(player, pageIndex + 1)) {
+            return;
         }
-    }
 
-    /**
-     * Strips of all color codes from an item name and returns its name.
-     * Called by {@link SpectateGUI#getPlayerItem(Player)} by default.
-     *
-     * @param itemStack The ItemStack which has a Player name as the display name.
-     * @return The name of this item without color codes.
-     */
-    private String getPlayerNameByItem(ItemStack itemStack) {
-        String itemName = itemStack.getItemMeta().getDisplayName();
-        return ChatColor.stripColor(itemName);
+        // Requested page not available
+        SoundUtils.playFailSound(player);
     }
 
 }
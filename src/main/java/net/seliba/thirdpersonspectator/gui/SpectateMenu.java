@@ -0,0 +1,201 @@
+package net.seliba.thirdpersonspectator.gui;
+
+import net.seliba.thirdpersonspectator.configuration.ConfigurationProvider;
+import net.seliba.thirdpersonspectator.configuration.types.MainConfig;
+import net.seliba.thirdpersonspectator.model.SpectatablePlayer;
+import net.seliba.thirdpersonspectator.model.SpectatablePlayerFactory;
+import net.seliba.thirdpersonspectator.model.SpectateService;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The shared pages of the {@link SpectateGUI}.
+ * Every page is a single Inventory viewed by all Players who opened it.
+ * Slots are patched in place when Players become (un)spectatable instead of rebuilding the pages,
+ * so the cost scales with the changes instead of the amount of viewers.
+ * <p>
+ * Removed Players are replaced by the last Player in the menu, so every change touches at most two slots.
+ * Should only be accessed from the main thread.
+ */
+public final class SpectateMenu {
+
+    private final ConfigurationProvider configurationProvider;
+    private final SkullCache skullCache;
+    private final SpectateService spectateService;
+
+    private final List<SpectateGUI> pages = new ArrayList<>();
+    private final List<UUID> entries = new ArrayList<>();
+    private final Map<UUID, Integer> entryIndices = new HashMap<>();
+
+    private int entriesPerPage;
+
+    /**
+     * The default constructor.
+     * Creates the first page, Players have to be added using {@link SpectateMenu#add(Player)}.
+     *
+     * @param configurationProvider The provider of configurations for the plugin.
+     * @param skullCache            The cache of the skulls representing the Players.
+     * @param spectateService       The service which lets Players spectate the clicked Players.
+     */
+    public SpectateMenu(ConfigurationProvider configurationProvider, SkullCache skullCache, SpectateService spectateService) {
+        this.configurationProvider = configurationProvider;
+        this.skullCache = skullCache;
+        this.spectateService = spectateService;
+
+        initializeLayout();
+    }
+
+    /**
+     * Opens the provided page of this menu for the provided Player.
+     *
+     * @param player    The Player who should see the page.
+     * @param pageIndex The index of the page starting at 0.
+     * @return Whether or not the page exists.
+     */
+    public boolean open(Player player, int pageIndex) {
+        if (pageIndex < 0 || pageIndex >= pages.size()) {
+            return false;
+        }
+
+        player.openInventory(pages.get(pageIndex).getInventory());
+        return true;
+    }
+
+    /**
+     * Adds the provided Player to the end of this menu if he isn't already shown.
+     * Creates a new page if the last one is full.
+     * The Player should be spectatable, which is checked by the caller as his GameMode may be about to change.
+     *
+     * @param player The Player who should be shown.
+     */
+    public void add(Player player) {
+        var uniqueId = player.getUniqueId();
+
+        if (entryIndices.containsKey(uniqueId)) {
+            return;
+        }
+
+        int index = entries.size();
+        if (index / entriesPerPage >= pages.size()) {
+            pages.add(new SpectateGUI(this, configurationProvider, spectateService, pages.size()));
+        }
+
+        entries.add(uniqueId);
+        entryIndices.put(uniqueId, index);
+        setItem(index, skullCache.get(player));
+    }
+
+    /**
+     * Removes the provided Player from this menu if he is shown.
+     * The last Player of this menu takes his slot and empty pages are closed.
+     *
+     * @param player The Player who should be removed.
+     */
+    public void remove(Player player) {
+        Integer index = entryIndices.remove(player.getUniqueId());
+
+        if (index == null) {
+            return;
+        }
+
+        // Move the last Player into the free slot
+        int lastIndex = entries.size() - 1;
+        var lastEntry = entries.remove(lastIndex);
+        if (index != lastIndex) {
+            entries.set(index, lastEntry);
+            entryIndices.put(lastEntry, index);
+            setItem(index, getItem(lastIndex));
+        }
+        setItem(lastIndex, null);
+
+        // Move the viewers of the last page to the previous one once it is empty
+        if (pages.size() > 1 && lastIndex % entriesPerPage == 0) {
+            var emptyPage = pages.remove(pages.size() - 1);
+
+            for (HumanEntity viewer : new ArrayList<>(emptyPage.getInventory().getViewers())) {
+                viewer.openInventory(pages.get(pages.size() - 1).getInventory());
+            }
+        }
+    }
+
+    /**
+     * Returns the UUID of the Player shown in the provided slot.
+     * Used for routing clicks without parsing the names of the items.
+     *
+     * @param pageIndex The index of the page starting at 0.
+     * @param slot      The slot within the page.
+     * @return The UUID of the shown Player, null if the slot doesn't show one.
+     */
+    public UUID getTarget(int pageIndex, int slot) {
+        int index = pageIndex * entriesPerPage + slot;
+
+        if (slot < 0 || slot >= entriesPerPage || index >= entries.size()) {
+            return null;
+        }
+
+        return entries.get(index);
+    }
+
+    /**
+     * Recreates all pages using the current configuration.
+     * Viewers are moved to the new page with the same index.
+     */
+    public void rebuild() {
+        var oldPages = new ArrayList<>(pages);
+
+        pages.clear();
+        entries.clear();
+        entryIndices.clear();
+        initializeLayout();
+
+        SpectatablePlayerFactory.getCachedPlayers().stream()
+                .filter(SpectatablePlayer::isSpectatable)
+                .map(SpectatablePlayer::getBukkitPlayer)
+                .forEach(this::add);
+
+        for (SpectateGUI oldPage : oldPages) {
+            var newPage = pages.get(Math.min(oldPage.getPageIndex(), pages.size() - 1));
+
+            for (HumanEntity viewer : new ArrayList<>(oldPage.getInventory().getViewers())) {
+                viewer.openInventory(newPage.getInventory());
+            }
+        }
+    }
+
+    /**
+     * Reads the size of the pages from the configuration and creates the first page.
+     */
+    private void initializeLayout() {
+        this.entriesPerPage = (int) configurationProvider.getLong(MainConfig.INVENTORY_SIZE) - 9;
+
+        pages.add(new SpectateGUI(this, configurationProvider, spectateService, 0));
+    }
+
+    /**
+     * Returns the item at the provided position of this menu.
+     *
+     * @param index The index of the entry across all pages.
+     * @return The item of the entry.
+     */
+    private ItemStack getItem(int index) {
+        return pages.get(index / entriesPerPage).getInventory().getItem(index % entriesPerPage);
+    }
+
+    /**
+     * Replaces the item at the provided position of this menu.
+     *
+     * @param index     The index of the entry across all pages.
+     * @param itemStack The new item, null to clear the slot.
+     */
+    private void setItem(int index, ItemStack itemStack) {
+        pages.get(index / entriesPerPage).getInventory().setItem(index % entriesPerPage, itemStack);
+    }
+
+}
@@ -0,0 +1,74 @@
+package net.seliba.thirdpersonspectator.listener;
+
+import net.seliba.thirdpersonspectator.scheduler.SpectatorScheduler;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPhysicsEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+
+/**
+ * Event Listener which handles changing blocks.
+ * Used to invalidate cached camera solutions, chunk snapshots and heightmaps near the changed blocks.
+ *
+ * @see net.seliba.thirdpersonspectator.model.CameraSolutionCache
+ * @see net.seliba.thirdpersonspectator.model.ChunkSnapshotCache
+ * @see net.seliba.thirdpersonspectator.model.HeightmapCache
+ */
+public final class BlockChangeListener implements Listener {
+
+    private final SpectatorScheduler spectatorScheduler;
+
+    /**
+     * The default constructor.
+     *
+     * @param spectatorScheduler The scheduler which updates the spectator cameras.
+     */
+    public BlockChangeListener(SpectatorScheduler spectatorScheduler) {
+        this.spectatorScheduler = spectatorScheduler;
+    }
+
+    /**
+     * Called when a Player places a block.
+     *
+     * @param event The BlockPlaceEvent provided by Bukkit.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        handleBlockChange(event.getBlock());
+    }
+
+    /**
+     * Called when a Player breaks a block.
+     *
+     * @param event The BlockBreakEvent provided by Bukkit.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        handleBlockChange(event.getBlock());
+    }
+
+    /**
+     * Called when a block is updated by physics, e.g. flowing water or falling sand.
+     *
+     * @param event The BlockPhysicsEvent provided by Bukkit.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPhysics(BlockPhysicsEvent event) {
+        handleBlockChange(event.getBlock());
+    }
+
+    /**
+     * Invalidates everything cached for the surroundings of the changed block.
+     *
+     * @param block The block which changed.
+     */
+    private void handleBlockChange(Block block) {
+        spectatorScheduler.getCameraSolutionCache().invalidate(block.getWorld(), block.getX(), block.getZ());
+        spectatorScheduler.getChunkSnapshotCache().invalidate(block.getWorld(), block.getX(), block.getZ());
+        spectatorScheduler.getHeightmapCache().invalidate(block.getWorld(), block.getX(), block.getZ());
+    }
+
+}
@@ -5,6 +5,7 @@ import org.bukkit.event.Event;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
 
 /**
  * Event Listener which handles inventory clicks.
@@ -22,17 +23,32 @@ public final class InventoryClickListener implements Listener {
      */
     @EventHandler
     public void onInventoryClick(InventoryClickEvent event) {
-        if (event.getClickedInventory() == null || event.getCurrentItem() == null) {
+        var inventoryHolder = event.getView().getTopInventory().getHolder();
+
+        if (!(inventoryHolder instanceof GUI)) {
             return;
         }
 
-        var inventoryHolder = event.getClickedInventory().getHolder();
+        // Deny every click while a GUI is open, so shift-clicks from the own Inventory can't move items into it
+        event.setResult(Event.Result.DENY);
 
-        // Let the GUI handle the click if the clicked Inventory is one and cancel the event
-        if (inventoryHolder instanceof GUI) {
-            event.setResult(Event.Result.DENY);
+        // Let the GUI handle clicks on its own items
+        if (event.getClickedInventory() == event.getView().getTopInventory() && event.getCurrentItem() != null) {
             ((GUI) inventoryHolder).handleInventoryClick(event);
         }
     }
 
+    /**
+     * Called when a Player drags items across an Inventory.
+     * Cancelled while a GUI is open, as the items could be placed into the GUI otherwise.
+     *
+     * @param event The InventoryDragEvent provided by Bukkit.
+     */
+    @EventHandler
+    public void onInventoryDrag(InventoryDragEvent event) {
+        if (event.getView().getTopInventory().getHolder() instanceof GUI) {
+            event.setResult(Event.Result.DENY);
+        }
+    }
+
 }
@@ -6,6 +6,8 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
 
+import java.util.ArrayList;
+
 /**
  * Event Listener which handles Player changing worlds.
  * Used to prevent spectator cameras from breaking.
@@ -22,7 +24,7 @@ public class PlayerChangedWorldListener implements Listener {
     public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
         var spectatablePlayer = SpectatablePlayerFactory.get(event.getPlayer());
 
-        for (Player spectatingPlayer : spectatablePlayer.getSpectatingPlayers()) {
+        for (Player spectatingPlayer : new ArrayList<>(spectatablePlayer.getSpectatingPlayers())) {
             spectatablePlayer.stopSpectating(spectatingPlayer);
             spectatablePlayer.startSpectating(spectatingPlayer);
         }
@@ -2,9 +2,12 @@ package net.seliba.thirdpersonspectator.listener;
 
 import net.seliba.thirdpersonspectator.configuration.ConfigurationProvider;
 import net.seliba.thirdpersonspectator.configuration.types.Message;
+import net.seliba.thirdpersonspectator.gui.SpectateMenu;
 import net.seliba.thirdpersonspectator.model.SpectatablePlayerFactory;
+import net.seliba.thirdpersonspectator.scheduler.SpectatorScheduler;
 import org.bukkit.GameMode;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerGameModeChangeEvent;
 
@@ -15,14 +18,21 @@ import org.bukkit.event.player.PlayerGameModeChangeEvent;
 public class PlayerGameModeChangeListener implements Listener {
 
     private final ConfigurationProvider configurationProvider;
+    private final SpectatorScheduler spectatorScheduler;
+    private final SpectateMenu spectateMenu;
 
     /**
      * The default constructor.
      *
      * @param configurationProvider The provider of configurations for the plugin.
+     * @param spectatorScheduler    The scheduler which updates the spectator cameras.
+     * @param spectateMenu          The menu showing all spectatable Players.
      */
-    public PlayerGameModeChangeListener(ConfigurationProvider configurationProvider) {
+    public PlayerGameModeChangeListener(ConfigurationProvider configurationProvider, SpectatorScheduler spectatorScheduler,
+                                        SpectateMenu spectateMenu) {
         this.configurationProvider = configurationProvider;
+        this.spectatorScheduler = spectatorScheduler;
+        this.spectateMenu = spectateMenu;
     }
 
     /**
@@ -36,17 +46,37 @@ public class PlayerGameModeChangeListener implements Listener {
         var player = event.getPlayer();
         var gameMode = player.getGameMode();
 
+        // Let the scheduler notice spectated Players which are no longer spectatable
+        if (event.getNewGameMode() == GameMode.SPECTATOR) {
+            spectatorScheduler.markDirty(SpectatablePlayerFactory.get(player));
+        }
+
         if (gameMode != GameMode.SPECTATOR) {
             return;
         }
 
-        boolean isThirdPersonSpectator = SpectatablePlayerFactory.getCachedPlayers().stream()
-                .anyMatch(spectatablePlayer -> spectatablePlayer.getSpectatingPlayers().contains(player));
+        boolean isThirdPersonSpectator = SpectatablePlayerFactory.getSpectatedPlayer(player).isPresent();
 
         if (isThirdPersonSpectator) {
-            player.sendMessage(configurationProvider.getString(Message.PREFIX, Message.GAMEMODE_CHANGE_NOT_ALLOWED));
+            player.sendMessage(configurationProvider.getMessage(Message.GAMEMODE_CHANGE_NOT_ALLOWED));
             event.setCancelled(true);
         }
     }
 
+    /**
+     * Called after a Player changed his GameMode.
+     * Used for showing or hiding the Player in the SpectateGUI.
+     *
+     * @param event The PlayerGameModeChangeEvent provided by Bukkit.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerChangedGameMode(PlayerGameModeChangeEvent event) {
+        // The GameMode of the Player is changed after this event
+        if (event.getNewGameMode() == GameMode.SPECTATOR) {
+            spectateMenu.remove(event.getPlayer());
+        } else {
+            spectateMenu.add(event.getPlayer());
+        }
+    }
+
 }
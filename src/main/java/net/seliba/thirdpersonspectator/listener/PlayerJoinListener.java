@@ -1,5 +1,6 @@
 package net.seliba.thirdpersonspectator.listener;
 
+import net.seliba.thirdpersonspectator.gui.SpectateMenu;
 import net.seliba.thirdpersonspectator.model.SpectatablePlayerFactory;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -11,6 +12,17 @@ import org.bukkit.event.player.PlayerJoinEvent;
  */
 public final class PlayerJoinListener implements Listener {
 
+    private final SpectateMenu spectateMenu;
+
+    /**
+     * The default constructor.
+     *
+     * @param spectateMenu The menu showing all spectatable Players.
+     */
+    public PlayerJoinListener(SpectateMenu spectateMenu) {
+        this.spectateMenu = spectateMenu;
+    }
+
     /**
      * Called when a Player joins the server.
      * Registers them in the {@link net.seliba.thirdpersonspectator.model.SpectatablePlayerFactory} cache.
@@ -20,8 +32,12 @@ public final class PlayerJoinListener implements Listener {
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         // Add the Player to the spectatable player cache
-        // Required for the SpectateGUI to work
-        SpectatablePlayerFactory.get(event.getPlayer());
+        var spectatablePlayer = SpectatablePlayerFactory.register(event.getPlayer());
+
+        // Show the Player in the SpectateGUI
+        if (spectatablePlayer.isSpectatable()) {
+            spectateMenu.add(event.getPlayer());
+        }
     }
 
 }
@@ -0,0 +1,72 @@
+package net.seliba.thirdpersonspectator.listener;
+
+import net.seliba.thirdpersonspectator.model.SpectatablePlayerFactory;
+import net.seliba.thirdpersonspectator.scheduler.SpectatorScheduler;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+/**
+ * Event Listener which handles moving Players.
+ * Marks the cameras of spectated Players as dirty if the {@link SpectatorScheduler} uses dirty tracking.
+ */
+public final class PlayerMoveListener implements Listener {
+
+    private final SpectatorScheduler spectatorScheduler;
+
+    /**
+     * The default constructor.
+     *
+     * @param spectatorScheduler The scheduler which updates the spectator cameras.
+     */
+    public PlayerMoveListener(SpectatorScheduler spectatorScheduler) {
+        this.spectatorScheduler = spectatorScheduler;
+    }
+
+    /**
+     * Called when a Player moves.
+     * Marks the camera of the Player as dirty if he is spectated.
+     *
+     * @param event The PlayerMoveEvent provided by Bukkit.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        handleMove(event);
+    }
+
+    /**
+     * Called when a Player teleports.
+     * Marks the camera of the Player as dirty if he is spectated.
+     *
+     * @param event The PlayerTeleportEvent provided by Bukkit.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        handleMove(event);
+    }
+
+    /**
+     * Marks the camera of the moving Player as dirty if he is spectated and moved far enough.
+     *
+     * @param event The move event provided by Bukkit.
+     */
+    private void handleMove(PlayerMoveEvent event) {
+        if (!spectatorScheduler.isDirtyTracking() || event.getTo() == null) {
+            return;
+        }
+
+        // Moving Players are never registered here, most of them are not spectated anyway
+        var spectatablePlayer = SpectatablePlayerFactory.getIfRegistered(event.getPlayer());
+
+        if (spectatablePlayer == null || !spectatorScheduler.isActive(spectatablePlayer)) {
+            return;
+        }
+
+        if (spectatablePlayer.hasMoved(event.getTo(), spectatorScheduler.getPositionEpsilon(), spectatorScheduler.getRotationEpsilon())) {
+            spectatorScheduler.markDirty(spectatablePlayer);
+        }
+    }
+
+}
@@ -1,17 +1,35 @@
 package net.seliba.thirdpersonspectator.listener;
 
+import net.seliba.thirdpersonspectator.gui.SkullCache;
+import net.seliba.thirdpersonspectator.gui.SpectateMenu;
 import net.seliba.thirdpersonspectator.model.SpectatablePlayerFactory;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerQuitEvent;
 
+import java.util.ArrayList;
+
 /**
  * Event Listener which handles quitting Players.
  * Used for moving spectators out of the third-person view and forcing all spectators out of spectated quitting Players.
  */
 public final class PlayerQuitListener implements Listener {
 
+    private final SpectateMenu spectateMenu;
+    private final SkullCache skullCache;
+
+    /**
+     * The default constructor.
+     *
+     * @param spectateMenu The menu showing all spectatable Players.
+     * @param skullCache   The cache of the skulls representing the Players.
+     */
+    public PlayerQuitListener(SpectateMenu spectateMenu, SkullCache skullCache) {
+        this.spectateMenu = spectateMenu;
+        this.skullCache = skullCache;
+    }
+
     /**
      * Called when a Player leaves the server.
      * Used for moving spectators out of the third-person view and forcing all spectators out of spectated quitting Players.
@@ -21,15 +39,22 @@ public final class PlayerQuitListener implements Listener {
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player quittingPlayer = event.getPlayer();
-        var spectatablePlayer = SpectatablePlayerFactory.get(quittingPlayer);
 
-        // Remove the leaving Player from the cache
-        SpectatablePlayerFactory.getCachedPlayers().removeIf(player -> player == spectatablePlayer);
+        // Remove the leaving Player from the cache and the SpectateGUI
+        var spectatablePlayer = SpectatablePlayerFactory.unregister(quittingPlayer);
+        spectateMenu.remove(quittingPlayer);
+        skullCache.invalidate(quittingPlayer);
 
         // Force all spectators of this Player to stop spectating
-        SpectatablePlayerFactory.getCachedPlayers().stream()
-                .filter(player -> player.getSpectatingPlayers().contains(quittingPlayer))
-                .forEach(player -> player.stopSpectating(quittingPlayer));
+        if (spectatablePlayer != null) {
+            for (Player spectator : new ArrayList<>(spectatablePlayer.getSpectatingPlayers())) {
+                spectatablePlayer.stopSpectating(spectator);
+            }
+        }
+
+        // Move this Player out of the camera he was using
+        SpectatablePlayerFactory.getSpectatedPlayer(quittingPlayer)
+                .ifPresent(player -> player.stopSpectating(quittingPlayer));
     }
 
 }
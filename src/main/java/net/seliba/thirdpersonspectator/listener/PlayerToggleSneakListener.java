@@ -31,9 +31,8 @@ public class PlayerToggleSneakListener implements Listener {
         }
 
         // Stop spectating if this Player was a spectator
-        SpectatablePlayerFactory.getCachedPlayers().stream()
-                .filter(spectatablePlayer -> spectatablePlayer.getSpectatingPlayers().contains(player))
-                .forEach(spectatablePlayer -> spectatablePlayer.stopSpectating(player));
+        SpectatablePlayerFactory.getSpectatedPlayer(player)
+                .ifPresent(spectatablePlayer -> spectatablePlayer.stopSpectating(player));
     }
 
 }
@@ -0,0 +1,292 @@
+package net.seliba.thirdpersonspectator.model;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded LRU cache of solved camera positions.
+ * Solutions are keyed by the half-block cell of the Player's eyes and his rotation rounded to a configurable angle,
+ * so Players standing still while only turning or bobbing slightly don't need new raytraces.
+ * Half-block cells reduce the error of a reused solution compared to whole blocks, but don't remove it:
+ * the eyes may still be almost half a block away along each axis (about 0.87 blocks diagonally)
+ * from the eyes the solution was calculated for, and the rounded rotation adds an angular error on top.
+ * A reused camera can therefore still end up slightly closer to a wall than a freshly solved one.
+ * <p>
+ * Block changes invalidate all solutions of the chunks within the reach of the camera raytraces.
+ * Solutions calculated from an older state of the blocks, e.g. off the main thread, are only cached
+ * if the stamp of their chunk did not change since the blocks were read.
+ */
+public final class CameraSolutionCache {
+
+    /*
+    The farthest distance from the eyes a camera raytrace may check a block at, including the birds-eye view.
+     */
+    private static final int INVALIDATION_RADIUS = 5;
+
+    /*
+    Chunk stamps are dropped together with all solutions once this many chunks are tracked.
+     */
+    private static final int MAX_TRACKED_CHUNKS = 4096;
+
+    /*
+    The amount of cells the eye positions are divided into per block and axis.
+     */
+    private static final int CELLS_PER_BLOCK = 2;
+
+    private final Map<CacheKey, CachedSolution> solutions;
+    private final Map<UUID, Map<Long, Long>> chunkStamps = new HashMap<>();
+    private final CacheKey lookupKey = new CacheKey();
+
+    private final int maxSize;
+    private final float angleStep;
+
+    private int trackedChunks = 0;
+    private long lastStamp = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * The default constructor.
+     *
+     * @param maxSize   The maximum amount of cached solutions, 0 disables the cache.
+     * @param angleStep The angle in degrees rotations are rounded to.
+     */
+    public CameraSolutionCache(int maxSize, float angleStep) {
+        this.maxSize = maxSize;
+        this.angleStep = angleStep > 0 ? angleStep : 1;
+        this.solutions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedSolution> eldest) {
+                return size() > CameraSolutionCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached camera solution for the provided eye Location.
+     *
+     * @param eyeLocation The eye Location of the spectated Player.
+     * @return The cached solution, {@link Double#NaN} if there is none.
+     */
+    public double get(Location eyeLocation) {
+        if (maxSize <= 0) {
+            return Double.NaN;
+        }
+
+        lookupKey.set(eyeLocation, angleStep);
+        var cachedSolution = solutions.get(lookupKey);
+
+        // Solutions are outdated if a block nearby changed after they were cached
+        if (cachedSolution == null || cachedSolution.stamp != getChunkStamp(eyeLocation)) {
+            misses++;
+            return Double.NaN;
+        }
+
+        hits++;
+        return cachedSolution.solution;
+    }
+
+    /**
+     * Caches the camera solution for the provided eye Location, unless a block nearby changed since the provided stamp was read.
+     *
+     * @param eyeLocation The eye Location of the spectated Player.
+     * @param solution    The solved camera.
+     * @param stamp       The stamp returned by {@link CameraSolutionCache#getStamp(Location)} when the blocks for the solution were read.
+     */
+    public void put(Location eyeLocation, double solution, long stamp) {
+        if (maxSize <= 0 || stamp != getChunkStamp(eyeLocation)) {
+            return;
+        }
+
+        var cacheKey = new CacheKey();
+        cacheKey.set(eyeLocation, angleStep);
+        solutions.put(cacheKey, new CachedSolution(solution, stamp));
+    }
+
+    /**
+     * Returns the stamp of the last block change in the chunk of the provided eye Location
+     * and starts tracking block changes in this chunk.
+     * Should be read together with the blocks a solution is calculated from.
+     *
+     * @param eyeLocation The eye Location of the spectated Player.
+     * @return The current stamp of the chunk, -1 if the cache is disabled.
+     */
+    public long getStamp(Location eyeLocation) {
+        if (maxSize <= 0) {
+            return -1;
+        }
+
+        var worldStamps = chunkStamps.computeIfAbsent(eyeLocation.getWorld().getUID(), worldId -> new HashMap<>());
+        long chunkKey = getChunkKey(eyeLocation.getBlockX() >> 4, eyeLocation.getBlockZ() >> 4);
+        var stamp = worldStamps.get(chunkKey);
+
+        if (stamp == null) {
+            if (trackedChunks >= MAX_TRACKED_CHUNKS) {
+                clear();
+                worldStamps = chunkStamps.computeIfAbsent(eyeLocation.getWorld().getUID(), worldId -> new HashMap<>());
+            }
+
+            // Use a new stamp, so stamps read before the chunk was dropped never match again
+            stamp = ++lastStamp;
+            worldStamps.put(chunkKey, stamp);
+            trackedChunks++;
+        }
+
+        return stamp;
+    }
+
+    /**
+     * Invalidates all solutions which may depend on the block at the provided position.
+     *
+     * @param world  The world of the changed block.
+     * @param blockX The x coordinate of the changed block.
+     * @param blockZ The z coordinate of the changed block.
+     */
+    public void invalidate(World world, int blockX, int blockZ) {
+        var worldStamps = chunkStamps.get(world.getUID());
+
+        if (worldStamps == null) {
+            return;
+        }
+
+        for (int chunkX = (blockX - INVALIDATION_RADIUS) >> 4; chunkX <= (blockX + INVALIDATION_RADIUS) >> 4; chunkX++) {
+            for (int chunkZ = (blockZ - INVALIDATION_RADIUS) >> 4; chunkZ <= (blockZ + INVALIDATION_RADIUS) >> 4; chunkZ++) {
+                long chunkKey = getChunkKey(chunkX, chunkZ);
+
+                if (worldStamps.containsKey(chunkKey)) {
+                    worldStamps.put(chunkKey, ++lastStamp);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached solutions.
+     */
+    public void clear() {
+        solutions.clear();
+        chunkStamps.clear();
+        trackedChunks = 0;
+    }
+
+    /**
+     * Returns the share of lookups which could be answered from the cache.
+     *
+     * @return The hit rate between 0 and 1.
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : hits / (double) lookups;
+    }
+
+    /**
+     * Returns the amount of currently cached solutions.
+     *
+     * @return The size of this cache.
+     */
+    public int size() {
+        return solutions.size();
+    }
+
+    /**
+     * Returns the stamp of the last block change in the chunk of the provided Location.
+     *
+     * @param location The Location whose chunk should be checked.
+     * @return The stamp of the chunk, -1 if it is not tracked.
+     */
+    private long getChunkStamp(Location location) {
+        var worldStamps = chunkStamps.get(location.getWorld().getUID());
+
+        if (worldStamps == null) {
+            return -1;
+        }
+
+        return worldStamps.getOrDefault(getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4), -1L);
+    }
+
+    /**
+     * Combines chunk coordinates to a single key.
+     *
+     * @param chunkX The x coordinate of the chunk.
+     * @param chunkZ The z coordinate of the chunk.
+     * @return The key of the chunk.
+     */
+    private static long getChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A camera solution and the stamp of its chunk at the time it was cached.
+     */
+    private static final class CachedSolution {
+
+        private final double solution;
+        private final long stamp;
+
+        private CachedSolution(double solution, long stamp) {
+            this.solution = solution;
+            this.stamp = stamp;
+        }
+
+    }
+
+    /**
+     * The quantized position and rotation of a Player's eyes.
+     * Mutable so lookups don't need to allocate a new key.
+     */
+    private static final class CacheKey {
+
+        private UUID worldId;
+        private int cellX;
+        private int cellY;
+        private int cellZ;
+        private int yawBucket;
+        private int pitchBucket;
+
+        private void set(Location eyeLocation, float angleStep) {
+            this.worldId = eyeLocation.getWorld().getUID();
+            this.cellX = (int) Math.floor(eyeLocation.getX() * CELLS_PER_BLOCK);
+            this.cellY = (int) Math.floor(eyeLocation.getY() * CELLS_PER_BLOCK);
+            this.cellZ = (int) Math.floor(eyeLocation.getZ() * CELLS_PER_BLOCK);
+            this.yawBucket = (int) Math.floor(((eyeLocation.getYaw() % 360 + 360) % 360) / angleStep);
+            this.pitchBucket = (int) Math.floor(eyeLocation.getPitch() / angleStep);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+
+            if (!(object instanceof CacheKey)) {
+                return false;
+            }
+
+            var other = (CacheKey) object;
+            return cellX == other.cellX
+                    && cellY == other.cellY
+                    && cellZ == other.cellZ
+                    && yawBucket == other.yawBucket
+                    && pitchBucket == other.pitchBucket
+                    && worldId.equals(other.worldId);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = worldId.hashCode();
+            hash = 31 * hash + cellX;
+            hash = 31 * hash + cellY;
+            hash = 31 * hash + cellZ;
+            hash = 31 * hash + yawBucket;
+            return 31 * hash + pitchBucket;
+        }
+
+    }
+
+}
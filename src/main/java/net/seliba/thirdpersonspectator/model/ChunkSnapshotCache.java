@@ -0,0 +1,167 @@
+package net.seliba.thirdpersonspectator.model;
+
+import net.seliba.thirdpersonspectator.utils.ChunkSnapshotBlockAccess;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cache of {@link ChunkSnapshot}s around spectated Players, used to solve cameras off the main thread.
+ * Snapshots are taken lazily when a camera needs them and dropped when a block in their chunk changes,
+ * so the next camera update takes a fresh one.
+ * <p>
+ * This class is not thread-safe and may only be used on the main thread,
+ * the {@link ChunkSnapshotBlockAccess} instances it hands out can be used on any thread.
+ */
+public final class ChunkSnapshotCache {
+
+    /*
+    The farthest distance from the eyes a camera raytrace may check a block at, including the birds-eye view.
+     */
+    private static final int SNAPSHOT_RADIUS = 5;
+
+    /*
+    Snapshots which have not been used for this many camera updates are dropped.
+     */
+    private static final int MAX_UNUSED_UPDATES = 100;
+
+    private final Map<UUID, Map<Long, CachedSnapshot>> snapshots = new HashMap<>();
+
+    private int currentUpdate = 0;
+    private int size = 0;
+
+    /**
+     * Returns a block access for all blocks a camera raytrace from the provided eye Location may check.
+     * Takes snapshots of the chunks which are not cached yet, unloaded chunks are treated as solid.
+     *
+     * @param eyeLocation The eye Location of the spectated Player.
+     * @return A block access which may be used on any thread.
+     */
+    public ChunkSnapshotBlockAccess getBlockAccess(Location eyeLocation) {
+        var world = eyeLocation.getWorld();
+        var worldSnapshots = snapshots.computeIfAbsent(world.getUID(), worldId -> new HashMap<>());
+
+        int minChunkX = (eyeLocation.getBlockX() - SNAPSHOT_RADIUS) >> 4;
+        int minChunkZ = (eyeLocation.getBlockZ() - SNAPSHOT_RADIUS) >> 4;
+        int width = Math.max(
+                ((eyeLocation.getBlockX() + SNAPSHOT_RADIUS) >> 4) - minChunkX,
+                ((eyeLocation.getBlockZ() + SNAPSHOT_RADIUS) >> 4) - minChunkZ
+        ) + 1;
+
+        var areaSnapshots = new ChunkSnapshot[width * width];
+        for (int offsetX = 0; offsetX < width; offsetX++) {
+            for (int offsetZ = 0; offsetZ < width; offsetZ++) {
+                areaSnapshots[offsetX * width + offsetZ] = getSnapshot(world, worldSnapshots, minChunkX + offsetX, minChunkZ + offsetZ);
+            }
+        }
+
+        return new ChunkSnapshotBlockAccess(areaSnapshots, minChunkX, minChunkZ, width);
+    }
+
+    /**
+     * Drops the snapshot of the chunk containing the provided block, if there is one.
+     *
+     * @param world  The world of the changed block.
+     * @param blockX The x coordinate of the changed block.
+     * @param blockZ The z coordinate of the changed block.
+     */
+    public void invalidate(World world, int blockX, int blockZ) {
+        var worldSnapshots = snapshots.get(world.getUID());
+
+        if (worldSnapshots != null && worldSnapshots.remove(getChunkKey(blockX >> 4, blockZ >> 4)) != null) {
+            size--;
+        }
+    }
+
+    /**
+     * Finishes a camera update and drops all snapshots which have not been used for a while.
+     * Should be called once after every camera update.
+     */
+    public void finishUpdate() {
+        currentUpdate++;
+
+        var worldIterator = snapshots.values().iterator();
+        while (worldIterator.hasNext()) {
+            var worldSnapshots = worldIterator.next();
+
+            var snapshotIterator = worldSnapshots.values().iterator();
+            while (snapshotIterator.hasNext()) {
+                if (currentUpdate - snapshotIterator.next().lastUsedUpdate > MAX_UNUSED_UPDATES) {
+                    snapshotIterator.remove();
+                    size--;
+                }
+            }
+
+            if (worldSnapshots.isEmpty()) {
+                worldIterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of currently cached snapshots.
+     *
+     * @return The size of this cache.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the cached snapshot of the provided chunk or takes a new one.
+     *
+     * @param world          The world of the chunk.
+     * @param worldSnapshots The cached snapshots of the world.
+     * @param chunkX         The x coordinate of the chunk.
+     * @param chunkZ         The z coordinate of the chunk.
+     * @return The snapshot of the chunk, null if the chunk is not loaded.
+     */
+    private ChunkSnapshot getSnapshot(World world, Map<Long, CachedSnapshot> worldSnapshots, int chunkX, int chunkZ) {
+        long chunkKey = getChunkKey(chunkX, chunkZ);
+        var cachedSnapshot = worldSnapshots.get(chunkKey);
+
+        if (cachedSnapshot == null) {
+            // Never load chunks just for a camera
+            if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                return null;
+            }
+
+            cachedSnapshot = new CachedSnapshot(world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+            worldSnapshots.put(chunkKey, cachedSnapshot);
+            size++;
+        }
+
+        cachedSnapshot.lastUsedUpdate = currentUpdate;
+        return cachedSnapshot.snapshot;
+    }
+
+    /**
+     * Combines chunk coordinates to a single key.
+     *
+     * @param chunkX The x coordinate of the chunk.
+     * @param chunkZ The z coordinate of the chunk.
+     * @return The key of the chunk.
+     */
+    private static long getChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A snapshot and the camera update it has been used in the last time.
+     */
+    private static final class CachedSnapshot {
+
+        private final ChunkSnapshot snapshot;
+        private int lastUsedUpdate;
+
+        private CachedSnapshot(ChunkSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+package net.seliba.thirdpersonspectator.model;
+
+import net.seliba.thirdpersonspectator.utils.MaterialUtils;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cache of the highest non-transparent block of every column in the chunks around spectated Players.
+ * Transparency is defined by {@link MaterialUtils}, so this differs from the heightmaps of Minecraft.
+ * Used to check whether the birds-eye view is possible without raytracing in most cases.
+ * <p>
+ * Heightmaps are calculated lazily from a {@link ChunkSnapshot} and dropped when a block in their chunk changes.
+ * This class is not thread-safe and may only be used on the main thread.
+ */
+public final class HeightmapCache {
+
+    /*
+    All heightmaps are dropped once this many chunks are cached.
+     */
+    private static final int MAX_CACHED_CHUNKS = 1024;
+
+    /*
+    Returned for columns without any non-transparent block.
+     */
+    private static final int NO_BLOCK = -1;
+
+    private final Map<UUID, Map<Long, int[]>> heightmaps = new HashMap<>();
+    private int size = 0;
+
+    /**
+     * Returns the y coordinate of the highest non-transparent block in the provided column.
+     * Every block above it is transparent.
+     *
+     * @param world  The world of the column.
+     * @param blockX The x coordinate of the column.
+     * @param blockZ The z coordinate of the column.
+     * @return The y coordinate of the highest non-transparent block, -1 if there is none
+     * and {@link Integer#MAX_VALUE} if the chunk is not loaded.
+     */
+    public int getHighestBlockY(World world, int blockX, int blockZ) {
+        var worldHeightmaps = heightmaps.computeIfAbsent(world.getUID(), worldId -> new HashMap<>());
+        int chunkX = blockX >> 4;
+        int chunkZ = blockZ >> 4;
+        long chunkKey = getChunkKey(chunkX, chunkZ);
+
+        var heightmap = worldHeightmaps.get(chunkKey);
+        if (heightmap == null) {
+            // Never load chunks just for a camera
+            if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                return Integer.MAX_VALUE;
+            }
+
+            if (size >= MAX_CACHED_CHUNKS) {
+                heightmaps.clear();
+                size = 0;
+                worldHeightmaps = heightmaps.computeIfAbsent(world.getUID(), worldId -> new HashMap<>());
+            }
+
+            heightmap = calculateHeightmap(world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false), world.getMaxHeight());
+            worldHeightmaps.put(chunkKey, heightmap);
+            size++;
+        }
+
+        return heightmap[(blockX & 15) << 4 | (blockZ & 15)];
+    }
+
+    /**
+     * Drops the heightmap of the chunk containing the provided block, if there is one.
+     *
+     * @param world  The world of the changed block.
+     * @param blockX The x coordinate of the changed block.
+     * @param blockZ The z coordinate of the changed block.
+     */
+    public void invalidate(World world, int blockX, int blockZ) {
+        var worldHeightmaps = heightmaps.get(world.getUID());
+
+        if (worldHeightmaps != null && worldHeightmaps.remove(getChunkKey(blockX >> 4, blockZ >> 4)) != null) {
+            size--;
+        }
+    }
+
+    /**
+     * Removes all cached heightmaps.
+     */
+    public void clear() {
+        heightmaps.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the amount of currently cached heightmaps.
+     *
+     * @return The size of this cache.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Calculates the highest non-transparent block of every column in the provided chunk.
+     * Empty chunk sections are skipped without checking their blocks.
+     *
+     * @param snapshot  The snapshot of the chunk.
+     * @param maxHeight The height of the World.
+     * @return The heightmap, indexed by {@code x << 4 | z}.
+     */
+    private static int[] calculateHeightmap(ChunkSnapshot snapshot, int maxHeight) {
+        var heightmap = new int[256];
+
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                heightmap[x << 4 | z] = findHighestBlockY(snapshot, maxHeight, x, z);
+            }
+        }
+
+        return heightmap;
+    }
+
+    /**
+     * Searches the highest non-transparent block in a single column of a chunk.
+     *
+     * @param snapshot  The snapshot of the chunk.
+     * @param maxHeight The height of the World.
+     * @param x         The x coordinate of the column inside the chunk.
+     * @param z         The z coordinate of the column inside the chunk.
+     * @return The y coordinate of the highest non-transparent block, -1 if there is none.
+     */
+    private static int findHighestBlockY(ChunkSnapshot snapshot, int maxHeight, int x, int z) {
+        for (int section = (maxHeight >> 4) - 1; section >= 0; section--) {
+            if (snapshot.isSectionEmpty(section)) {
+                continue;
+            }
+
+            for (int y = (section << 4) + 15; y >= section << 4; y--) {
+                if (!MaterialUtils.isTransparent(snapshot.getBlockType(x, y, z))) {
+                    return y;
+                }
+            }
+        }
+
+        return NO_BLOCK;
+    }
+
+    /**
+     * Combines chunk coordinates to a single key.
+     *
+     * @param chunkX The x coordinate of the chunk.
+     * @param chunkZ The z coordinate of the chunk.
+     * @return The key of the chunk.
+     */
+    private static long getChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+}
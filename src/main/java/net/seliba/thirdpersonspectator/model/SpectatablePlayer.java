@@ -1,17 +1,21 @@
 package net.seliba.thirdpersonspectator.model;
 
-import com.github.johnnyjayjay.compatre.NmsDependent;
 import io.papermc.lib.PaperLib;
-import net.minecraft.server.v1_13_R2.EntityArmorStand;
 import net.seliba.thirdpersonspectator.ThirdPersonSpectator;
+import net.seliba.thirdpersonspectator.scheduler.CameraSolver;
+import net.seliba.thirdpersonspectator.scheduler.SpectatorScheduler;
+import net.seliba.thirdpersonspectator.utils.BlockAccess;
+import net.seliba.thirdpersonspectator.utils.CameraEntity;
+import net.seliba.thirdpersonspectator.utils.EntityPositionTracker;
 import net.seliba.thirdpersonspectator.utils.NMSUtils;
 import net.seliba.thirdpersonspectator.utils.Raytrace;
-import org.bukkit.Bukkit;
+import net.seliba.thirdpersonspectator.utils.WorldBlockAccess;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.util.Vector;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -20,14 +24,53 @@ import java.util.Set;
  * Uses a virtual ArmorStand to force spectators into their third-person view.
  * Spectatable = can be spectated.
  */
-@NmsDependent
 public final class SpectatablePlayer {
 
+    // Camera solutions which are not a distance behind the Player
+    private static final double BIRDS_EYE_VIEW = -1;
+    private static final double ABOVE_PLAYER_VIEW = -2;
+
+    // The farthest distance behind the Player the camera is placed at
+    private static final double MAX_CAMERA_DISTANCE = 4;
+
+    // The distance the spring arm keeps to obstructions behind the Player
+    private static final double SPRING_ARM_CLEARANCE = 0.25;
+
     private final Player bukkitPlayer;
     private final Set<Player> spectatingPlayers = new HashSet<>();
 
-    private EntityArmorStand armorStand;
-    private Location lastPlayerLocation;
+    private final Location currentLocation;
+    private final Location cameraLocation;
+    private final EntityPositionTracker armorStandPosition = new EntityPositionTracker();
+
+    private CameraEntity armorStand;
+
+    // The position and rotation of the Player when his camera was calculated the last time
+    private double lastX;
+    private double lastY;
+    private double lastZ;
+    private float lastYaw;
+    private float lastPitch;
+
+    // The Location the camera is interpolated towards and the amount of ticks left to reach it
+    private double targetCameraX;
+    private double targetCameraY;
+    private double targetCameraZ;
+    private float targetCameraYaw;
+    private float targetCameraPitch;
+    private int remainingInterpolationSteps;
+
+    // The Location the spectators have been teleported to the last time
+    private double relocationX;
+    private double relocationZ;
+    private boolean isRelocationRequired = true;
+
+    // The length of the spring arm behind the Player, NaN if it has to be solved from scratch
+    private double armLength = Double.NaN;
+    private boolean isArmExtending = false;
+
+    // Whether a camera is currently being solved off the main thread
+    private boolean isSolvingCamera = false;
 
     /**
      * The default constructor.
@@ -37,7 +80,10 @@ public final class SpectatablePlayer {
      */
     SpectatablePlayer(Player bukkitPlayer) {
         this.bukkitPlayer = bukkitPlayer;
-        this.lastPlayerLocation = bukkitPlayer.getLocation();
+        this.currentLocation = bukkitPlayer.getLocation();
+        this.cameraLocation = bukkitPlayer.getLocation();
+
+        rememberLocation(currentLocation);
     }
 
     /**
@@ -75,22 +121,33 @@ public final class SpectatablePlayer {
      * @param spectator The Player who wants to spectate this Player.
      */
     public void startSpectating(Player spectator) {
+        // A Player can only spectate one Player at a time
+        var previousTarget = SpectatablePlayerFactory.getSpectatedPlayer(spectator);
+        if (previousTarget.isPresent() && previousTarget.get() != this) {
+            previousTarget.get().stopSpectating(spectator, true);
+        }
+
         spectatingPlayers.add(spectator);
+        SpectatablePlayerFactory.setSpectatedPlayer(spectator, this);
+        isRelocationRequired = true;
+        getSpectatorScheduler().activate(this);
         spectator.setGameMode(GameMode.SPECTATOR);
 
         // Hide all the other spectators for a better viewing experience
-        for (SpectatablePlayer spectatablePlayer : SpectatablePlayerFactory.getCachedPlayers()) {
-            for (Player spectatingPlayer : spectatablePlayer.getSpectatingPlayers()) {
-                spectatingPlayer.hidePlayer(ThirdPersonSpectator.getPlugin(ThirdPersonSpectator.class), spectator);
-                spectator.hidePlayer(ThirdPersonSpectator.getPlugin(ThirdPersonSpectator.class), spectatingPlayer);
-            }
-        }
+        VisibilityManager.hide(spectator);
 
         // Start spectating, teleport the spectator first so the ArmorStand packet is not just ignored
         PaperLib.teleportAsync(spectator, bukkitPlayer.getLocation()).thenRun(() -> {
             // Spawn the spectator ArmorStand if necessary
             if (armorStand == null) {
-                armorStand = NMSUtils.spawnArmorStand(calculateArmorStandLocation());
+                armLength = Double.NaN;
+                var armorStandLocation = calculateArmorStandLocation();
+                armorStand = NMSUtils.spawnArmorStand(armorStandLocation);
+                armorStandPosition.teleport(armorStandLocation.getX(), armorStandLocation.getY(), armorStandLocation.getZ());
+
+                cameraLocation.setWorld(armorStandLocation.getWorld());
+                copyPosition(armorStandLocation, cameraLocation);
+                remainingInterpolationSteps = 0;
             }
 
             // Show the ArmorStand to the Player and start spectating
@@ -105,24 +162,44 @@ public final class SpectatablePlayer {
      * @param spectator The Player which should no longer spectate.
      */
     public void stopSpectating(Player spectator) {
+        stopSpectating(spectator, false);
+    }
+
+    /**
+     * Removes the provided Player from the forced third-person view and hides the virtual ArmorStand from him.
+     *
+     * @param spectator         The Player which should no longer spectate.
+     * @param isSwitchingTarget Whether the Player is about to spectate another Player and should stay hidden.
+     */
+    private void stopSpectating(Player spectator, boolean isSwitchingTarget) {
         spectatingPlayers.remove(spectator);
+        SpectatablePlayerFactory.removeSpectatedPlayer(spectator, this);
 
         // Force the Player out of the spectating view and hide the ArmorStand
         NMSUtils.spectate(spectator, null);
         NMSUtils.removeArmorStand(spectator, armorStand);
 
         // Show the spectator again
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            player.showPlayer(ThirdPersonSpectator.getPlugin(ThirdPersonSpectator.class), spectator);
-            spectator.showPlayer(ThirdPersonSpectator.getPlugin(ThirdPersonSpectator.class), player);
+        if (!isSwitchingTarget) {
+            VisibilityManager.show(spectator);
         }
 
         // Remove the ArmorStand if there are no more spectators
         if (spectatingPlayers.isEmpty()) {
+            getSpectatorScheduler().deactivate(this);
             removeArmorStand();
         }
     }
 
+    /**
+     * Returns the scheduler which updates the camera of spectated Players.
+     *
+     * @return The scheduler of the plugin.
+     */
+    private static SpectatorScheduler getSpectatorScheduler() {
+        return ThirdPersonSpectator.getPlugin(ThirdPersonSpectator.class).getSpectatorScheduler();
+    }
+
     /**
      * Hides this Players ArmorStand from all spectators.
      */
@@ -133,44 +210,292 @@ public final class SpectatablePlayer {
                 NMSUtils.removeArmorStand(spectator, armorStand);
             }
 
+            NMSUtils.releaseArmorStand(armorStand);
             armorStand = null;
         }
     }
 
     /**
      * Updates the camera position for this Player.
-     * Teleports the virtual ArmorStand for the third-person view.
+     * Calculates the new Location of the virtual ArmorStand for the third-person view,
+     * the ArmorStand is then moved there by {@link SpectatablePlayer#interpolateCamera()}.
      * Calling this for a Player without spectators or a Player which has not moved since the last execution will be pretty fast.
      * Intended for getting called many times, e.g. through a Scheduler or the {@link org.bukkit.event.player.PlayerMoveEvent}.
+     *
+     * @return Whether or not the camera has to be interpolated to a new Location.
+     */
+    public boolean updateCamera() {
+        // A pending solution from the camera solver is applied first, the camera is calculated again in the next update
+        if (isSolvingCamera) {
+            getSpectatorScheduler().markDirty(this);
+            return false;
+        }
+
+        if (!shouldUpdateCamera()) {
+            return false;
+        }
+
+        setCameraTarget(calculateArmorStandLocation());
+        return true;
+    }
+
+    /**
+     * Updates the camera position for this Player like {@link SpectatablePlayer#updateCamera()},
+     * but solves the camera on the thread of the provided solver using snapshots of the surrounding chunks.
+     * The solution is applied through {@link SpectatablePlayer#applyCameraSolution(Location, long, double)} on the main thread.
+     * Marks this Player as dirty again while a previous solution is still pending,
+     * as the Player may have moved since the pending solution was requested.
+     *
+     * @param cameraSolver The solver which should solve the camera.
+     */
+    public void requestCameraUpdate(CameraSolver cameraSolver) {
+        if (isSolvingCamera) {
+            getSpectatorScheduler().markDirty(this);
+            return;
+        }
+
+        if (!shouldUpdateCamera()) {
+            return;
+        }
+
+        Location eyeLocation = bukkitPlayer.getEyeLocation();
+        var spectatorScheduler = getSpectatorScheduler();
+
+        // Cached solutions don't need to be solved again
+        double cameraDistance = getCachedCameraDistance(eyeLocation, spectatorScheduler);
+        long stamp = spectatorScheduler.getCameraSolutionCache().getStamp(eyeLocation);
+        if (!Double.isNaN(cameraDistance)) {
+            cameraSolver.complete(this, eyeLocation, stamp, cameraDistance);
+            return;
+        }
+
+        // The stamp is read together with the snapshots, so solutions based on outdated blocks are not cached
+        isSolvingCamera = true;
+        var blockAccess = spectatorScheduler.getChunkSnapshotCache().getBlockAccess(eyeLocation);
+        cameraSolver.solve(this, eyeLocation, stamp, () -> solveCameraDistance(eyeLocation, blockAccess, null, spectatorScheduler));
+    }
+
+    /**
+     * Applies a camera solution requested by {@link SpectatablePlayer#requestCameraUpdate(CameraSolver)}.
+     * Has to be called on the main thread.
+     *
+     * @param eyeLocation    The eye Location the camera has been solved for.
+     * @param stamp          The stamp of the camera solution cache when the blocks for the solution were read.
+     * @param cameraDistance The solved camera, {@link Double#NaN} if solving failed.
+     * @return Whether or not the camera has to be interpolated to a new Location.
+     */
+    public boolean applyCameraSolution(Location eyeLocation, long stamp, double cameraDistance) {
+        isSolvingCamera = false;
+
+        // The Player might have lost his spectators while solving
+        if (Double.isNaN(cameraDistance) || spectatingPlayers.isEmpty() || armorStand == null) {
+            return false;
+        }
+
+        cacheCameraDistance(eyeLocation, stamp, cameraDistance, getSpectatorScheduler());
+        setCameraTarget(placeCamera(eyeLocation, cameraDistance));
+        return true;
+    }
+
+    /**
+     * Checks whether the camera of this Player has to be calculated again and remembers his current Location if so.
+     * Stops all spectators if this Player is no longer spectatable.
+     *
+     * @return Whether or not the camera has to be calculated.
      */
-    public void updateCamera() {
+    private boolean shouldUpdateCamera() {
         // Ignore this Player if there are no spectators
         if (spectatingPlayers.isEmpty() || armorStand == null) {
-            return;
+            return false;
         }
 
         // Check if this Player is no longer spectatable
         if (!isSpectatable()) {
-            spectatingPlayers.forEach(this::stopSpectating);
-            return;
+            new ArrayList<>(spectatingPlayers).forEach(this::stopSpectating);
+            return false;
         }
 
-        // Return if the Player hasn't moved to save resources
-        if (lastPlayerLocation.equals(bukkitPlayer.getLocation())) {
-            return;
-        } else {
-            lastPlayerLocation = bukkitPlayer.getLocation();
+        var spectatorScheduler = getSpectatorScheduler();
+
+        // Return if the Player hasn't moved to save resources, an extending spring arm still has to be updated
+        bukkitPlayer.getLocation(currentLocation);
+        if (!isArmExtending && !hasMoved(currentLocation, spectatorScheduler.getPositionEpsilon(), spectatorScheduler.getRotationEpsilon())) {
+            return false;
+        }
+
+        rememberLocation(currentLocation);
+        return true;
+    }
+
+    /**
+     * Spreads the movement of the camera to the provided Location over the ticks until the next update.
+     *
+     * @param armorStandLocation The new Location of the ArmorStand.
+     */
+    private void setCameraTarget(Location armorStandLocation) {
+        var spectatorScheduler = getSpectatorScheduler();
+
+        if (cameraLocation.getWorld() != armorStandLocation.getWorld()) {
+            // Never interpolate between Worlds
+            cameraLocation.setWorld(armorStandLocation.getWorld());
+            copyPosition(armorStandLocation, cameraLocation);
+            isRelocationRequired = true;
+        }
+
+        // Keep updating until the spring arm is fully extended, even if the Player stands still
+        if (isArmExtending) {
+            spectatorScheduler.markDirty(this);
+        }
+
+        targetCameraX = armorStandLocation.getX();
+        targetCameraY = armorStandLocation.getY();
+        targetCameraZ = armorStandLocation.getZ();
+        targetCameraYaw = armorStandLocation.getYaw();
+        targetCameraPitch = armorStandLocation.getPitch();
+        remainingInterpolationSteps = spectatorScheduler.getUpdateInterval();
+    }
+
+    /**
+     * Moves the camera one step towards the Location calculated by {@link SpectatablePlayer#updateCamera()}.
+     * Should be called once per tick, the camera reaches the Location when the next update is due.
+     *
+     * @return Whether or not the camera has not reached the Location yet.
+     */
+    public boolean interpolateCamera() {
+        if (remainingInterpolationSteps <= 0 || armorStand == null) {
+            return false;
         }
 
-        var armorStandLocation = calculateArmorStandLocation();
+        double progress = 1.0 / remainingInterpolationSteps;
+        cameraLocation.setX(cameraLocation.getX() + (targetCameraX - cameraLocation.getX()) * progress);
+        cameraLocation.setY(cameraLocation.getY() + (targetCameraY - cameraLocation.getY()) * progress);
+        cameraLocation.setZ(cameraLocation.getZ() + (targetCameraZ - cameraLocation.getZ()) * progress);
+        cameraLocation.setYaw(cameraLocation.getYaw() + (float) (getSignedAngleDifference(targetCameraYaw, cameraLocation.getYaw()) * progress));
+        cameraLocation.setPitch(cameraLocation.getPitch() + (float) ((targetCameraPitch - cameraLocation.getPitch()) * progress));
+        remainingInterpolationSteps--;
+
+        var spectatorScheduler = getSpectatorScheduler();
 
-        // Teleport the ArmorStand
-        NMSUtils.teleportArmorStand(spectatingPlayers, armorStand, armorStandLocation);
+        // Move the ArmorStand, relative moves are used whenever possible
+        NMSUtils.moveArmorStand(spectatingPlayers, armorStand, armorStandPosition, cameraLocation, spectatorScheduler.getTeleportInterval());
 
         // Teleport the spectators so the spectated Player is never out of sight
-        for (Player spectator : spectatingPlayers) {
-            spectator.teleport(armorStandLocation);
+        if (!spectatorScheduler.isLazySpectatorRelocation() || requiresRelocation(spectatorScheduler.getSpectatorRelocationRadius())) {
+            for (Player spectator : spectatingPlayers) {
+                spectator.teleport(cameraLocation);
+            }
+
+            relocationX = cameraLocation.getX();
+            relocationZ = cameraLocation.getZ();
+            isRelocationRequired = false;
+        }
+
+        return remainingInterpolationSteps > 0;
+    }
+
+    /**
+     * Checks whether the spectators have to be teleported to the camera.
+     * This is the case if the camera crossed a chunk border or moved too far away since the last teleport.
+     *
+     * @param relocationRadius The distance in blocks the camera may move away from the spectators.
+     * @return Whether or not the spectators have to be teleported.
+     */
+    private boolean requiresRelocation(double relocationRadius) {
+        if (isRelocationRequired) {
+            return true;
+        }
+
+        double cameraX = cameraLocation.getX();
+        double cameraZ = cameraLocation.getZ();
+
+        if (((int) Math.floor(cameraX) >> 4) != ((int) Math.floor(relocationX) >> 4)
+                || ((int) Math.floor(cameraZ) >> 4) != ((int) Math.floor(relocationZ) >> 4)) {
+            return true;
+        }
+
+        double deltaX = cameraX - relocationX;
+        double deltaZ = cameraZ - relocationZ;
+        return deltaX * deltaX + deltaZ * deltaZ > relocationRadius * relocationRadius;
+    }
+
+    /**
+     * Checks whether the provided Location differs from the Location of the last camera update.
+     * Differences smaller than the provided epsilons are ignored to avoid updates due to jitter.
+     *
+     * @param location        The new Location of this Player.
+     * @param positionEpsilon The distance in blocks which is ignored.
+     * @param rotationEpsilon The angle in degrees which is ignored.
+     * @return Whether or not the Player has moved.
+     */
+    public boolean hasMoved(Location location, double positionEpsilon, float rotationEpsilon) {
+        double deltaX = location.getX() - lastX;
+        double deltaY = location.getY() - lastY;
+        double deltaZ = location.getZ() - lastZ;
+
+        if (deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ > positionEpsilon * positionEpsilon) {
+            return true;
+        }
+
+        return getAngleDifference(location.getYaw(), lastYaw) > rotationEpsilon
+                || Math.abs(location.getPitch() - lastPitch) > rotationEpsilon;
+    }
+
+    /**
+     * Stores the provided Location as the Location of the last camera update.
+     *
+     * @param location The Location which should be stored.
+     */
+    private void rememberLocation(Location location) {
+        lastX = location.getX();
+        lastY = location.getY();
+        lastZ = location.getZ();
+        lastYaw = location.getYaw();
+        lastPitch = location.getPitch();
+    }
+
+    /**
+     * Copies the coordinates and rotation of a Location to another one.
+     *
+     * @param source      The Location which should be copied.
+     * @param destination The Location which should be changed.
+     */
+    private static void copyPosition(Location source, Location destination) {
+        destination.setX(source.getX());
+        destination.setY(source.getY());
+        destination.setZ(source.getZ());
+        destination.setYaw(source.getYaw());
+        destination.setPitch(source.getPitch());
+    }
+
+    /**
+     * Returns the signed difference between two angles, taking the shorter way around.
+     *
+     * @param target  The angle which should be reached in degrees.
+     * @param current The current angle in degrees.
+     * @return The difference in degrees, between -180 and 180.
+     */
+    private static float getSignedAngleDifference(float target, float current) {
+        float difference = (target - current) % 360;
+
+        if (difference >= 180) {
+            difference -= 360;
+        } else if (difference < -180) {
+            difference += 360;
         }
+
+        return difference;
+    }
+
+    /**
+     * Returns the smallest difference between two angles.
+     *
+     * @param first  The first angle in degrees.
+     * @param second The second angle in degrees.
+     * @return The difference in degrees, between 0 and 180.
+     */
+    private static float getAngleDifference(float first, float second) {
+        float difference = Math.abs(first - second) % 360;
+        return difference > 180 ? 360 - difference : difference;
     }
 
     /**
@@ -179,59 +504,190 @@ public final class SpectatablePlayer {
      * This will either be normal third-person, a birds-eye view or optionally
      * the Player's first-person view based on the environment.
      * As this method will be called very often when there are many spectators,
-     * it should be reasonably fast.
+     * it should be reasonably fast. Solutions are cached while the Player stays in the same half-block cell,
+     * unless the spring arm is used which continues from the previous solution instead.
      *
      * @return The next Location of the ArmorStand.
      */
     private Location calculateArmorStandLocation() {
-        Location location = bukkitPlayer.getEyeLocation();
-        Vector origin = location.toVector();
-        Vector direction = location.getDirection();
+        Location eyeLocation = bukkitPlayer.getEyeLocation();
+        var spectatorScheduler = getSpectatorScheduler();
+
+        double cameraDistance = getCachedCameraDistance(eyeLocation, spectatorScheduler);
+        if (Double.isNaN(cameraDistance)) {
+            long stamp = spectatorScheduler.getCameraSolutionCache().getStamp(eyeLocation);
+            cameraDistance = solveCameraDistance(eyeLocation, new WorldBlockAccess(eyeLocation.getWorld()),
+                    spectatorScheduler.getHeightmapCache(), spectatorScheduler);
+            cacheCameraDistance(eyeLocation, stamp, cameraDistance, spectatorScheduler);
+        }
 
-        // Use a Raytrace to check if and from where there is a line of sight
-        Raytrace raytrace = new Raytrace(origin, direction.clone().multiply(-1).normalize());
-        Location mostDistantLocation = raytrace.getMostDistantLocation(4, 0.5, location.getWorld());
+        return placeCamera(eyeLocation, cameraDistance);
+    }
+
+    /**
+     * Returns the cached camera solution for the provided eye Location.
+     *
+     * @param eyeLocation        The eye Location of this Player.
+     * @param spectatorScheduler The scheduler providing the camera settings.
+     * @return The cached solution, {@link Double#NaN} if there is none or the spring arm is used.
+     */
+    private static double getCachedCameraDistance(Location eyeLocation, SpectatorScheduler spectatorScheduler) {
+        if (spectatorScheduler.isSpringArm()) {
+            return Double.NaN;
+        }
+
+        return spectatorScheduler.getCameraSolutionCache().get(eyeLocation);
+    }
+
+    /**
+     * Caches the camera solution for the provided eye Location, unless the spring arm is used.
+     *
+     * @param eyeLocation        The eye Location of this Player.
+     * @param stamp              The stamp of the camera solution cache when the blocks for the solution were read.
+     * @param cameraDistance     The solved camera.
+     * @param spectatorScheduler The scheduler providing the camera settings.
+     */
+    private static void cacheCameraDistance(Location eyeLocation, long stamp, double cameraDistance, SpectatorScheduler spectatorScheduler) {
+        if (!spectatorScheduler.isSpringArm()) {
+            spectatorScheduler.getCameraSolutionCache().put(eyeLocation, cameraDistance, stamp);
+        }
+    }
+
+    /**
+     * Solves where the camera should be placed for the provided eye Location.
+     * Only reads blocks through the provided block access, so this may run off the main thread
+     * if the block access allows it.
+     *
+     * @param eyeLocation        The eye Location of this Player.
+     * @param blockAccess        The access the blocks should be read from.
+     * @param heightmapCache     The heightmaps for checking the birds-eye view, null if they may not be used on the current thread.
+     * @param spectatorScheduler The scheduler providing the camera settings.
+     * @return The distance behind the Player, {@link SpectatablePlayer#BIRDS_EYE_VIEW} or {@link SpectatablePlayer#ABOVE_PLAYER_VIEW}.
+     */
+    private double solveCameraDistance(Location eyeLocation, BlockAccess blockAccess, HeightmapCache heightmapCache,
+                                       SpectatorScheduler spectatorScheduler) {
+        Vector direction = eyeLocation.getDirection();
+
+        if (spectatorScheduler.isSpringArm()) {
+            return solveSpringArmDistance(eyeLocation, direction, spectatorScheduler.getSpringArmExtensionSpeed(), blockAccess, heightmapCache);
+        }
+
+        return solveFullCameraDistance(eyeLocation, direction, blockAccess, heightmapCache);
+    }
 
+    /**
+     * Converts a camera solution to the Location of the ArmorStand.
+     *
+     * @param eyeLocation    The eye Location of this Player, which will be modified.
+     * @param cameraDistance The solved camera.
+     * @return The Location of the ArmorStand.
+     */
+    private static Location placeCamera(Location eyeLocation, double cameraDistance) {
         // Check if we were able to find a position for the ArmorStand or if the position is too close to the Player
-        if (mostDistantLocation == null) {
-            mostDistantLocation = tryBirdsEyeView(location);
-        } else if (location.getPitch() < -55) {
+        if (cameraDistance == BIRDS_EYE_VIEW) {
+            // Use the birds-eye view
+            eyeLocation.add(0, 4, 0);
+            eyeLocation.setPitch(90);
+        } else if (cameraDistance == ABOVE_PLAYER_VIEW) {
+            // Teleport the spectator slightly above the Player, no third-person view could be found
+            eyeLocation.add(0, 0.25, 0);
+        } else if (eyeLocation.getPitch() < -55) {
             // Teleport the spectator into the Player, no third-person view could be found
-            mostDistantLocation = location.clone().subtract(0, 0.25, 0);
-            mostDistantLocation.setDirection(location.getDirection());
+            eyeLocation.subtract(0, 0.25, 0);
         } else {
-            // Adjust the direction to have the spectated player in focus
-            mostDistantLocation.setDirection(direction);
+            // Move behind the Player, the direction still has the spectated player in focus
+            Vector direction = eyeLocation.getDirection();
+            eyeLocation.subtract(direction.getX() * cameraDistance, direction.getY() * cameraDistance, direction.getZ() * cameraDistance);
         }
 
         // Adjust the ArmorStands position to match the Vanilla third-person view
-        return mostDistantLocation.clone().subtract(0, 1.5, 0);
+        return eyeLocation.subtract(0, 1.5, 0);
     }
 
     /**
-     * Checks if a birds-eye view on the Player is possible, uses the Player's location for the camera if not.
+     * Calculates how far behind the Player the camera can be placed, continuing from the previous arm length.
+     * Only the distance up to the previous arm length plus the extension speed is probed,
+     * the arm is shortened immediately if an obstruction appears and grows back step by step afterwards.
      *
-     * @param playerLocation The Location of the Player which should be spectated.
-     * @return Either the Location of the birds-eye view or the Location of the Player.
+     * @param eyeLocation    The eye Location of the Player which should be spectated.
+     * @param direction      The direction the Player is looking in.
+     * @param extensionSpeed The distance in blocks the arm may grow per camera update.
+     * @param blockAccess    The access the blocks should be read from.
+     * @param heightmapCache The heightmaps for checking the birds-eye view, may be null.
+     * @return The distance behind the Player, {@link SpectatablePlayer#BIRDS_EYE_VIEW} or {@link SpectatablePlayer#ABOVE_PLAYER_VIEW}.
      */
-    private Location tryBirdsEyeView(Location playerLocation) {
-        // Use a Raytrace to check if there is a line of sight
-        Raytrace birdViewRaytrace = new Raytrace(playerLocation.toVector(), new Vector(0, 1, 0));
-        Location cameraLocation;
+    private double solveSpringArmDistance(Location eyeLocation, Vector direction, double extensionSpeed, BlockAccess blockAccess,
+                                          HeightmapCache heightmapCache) {
+        // Probe the full distance if there is no previous arm length to continue from
+        double probeDistance = Double.isNaN(armLength) ? MAX_CAMERA_DISTANCE : Math.min(armLength + extensionSpeed, MAX_CAMERA_DISTANCE);
+
+        Raytrace raytrace = new Raytrace(eyeLocation.getX(), eyeLocation.getY(), eyeLocation.getZ(),
+                -direction.getX(), -direction.getY(), -direction.getZ());
+        double hitDistance = raytrace.getHitDistance(probeDistance, blockAccess);
+
+        if (hitDistance == 0) {
+            // The eyes are blocked, the arm grows from the Player again once they are free
+            armLength = 0;
+            isArmExtending = false;
+            return solveFullCameraDistance(eyeLocation, direction, blockAccess, heightmapCache);
+        }
 
-        // Check if there is a line of sight for the birds-eye view
-        if (birdViewRaytrace.hasBlocksInTheWay(4, 0.5, playerLocation.getWorld())) {
-            // Teleport the spectator slightly above the Player, no third-person view could be found
-            cameraLocation = playerLocation.clone().add(0, 0.25, 0);
-            cameraLocation.setDirection(playerLocation.getDirection());
+        if (hitDistance == Double.POSITIVE_INFINITY) {
+            armLength = probeDistance;
+            isArmExtending = armLength < MAX_CAMERA_DISTANCE;
         } else {
-            // Use the birds-eye view
-            cameraLocation = playerLocation.clone().add(0, 4, 0);
-            cameraLocation.setYaw(playerLocation.getYaw());
-            cameraLocation.setPitch(90);
+            // Shorten immediately so the camera never ends up inside the obstruction
+            armLength = Math.max(0, hitDistance - SPRING_ARM_CLEARANCE);
+            isArmExtending = false;
+        }
+
+        return armLength;
+    }
+
+    /**
+     * Calculates how far behind the Player the camera can be placed.
+     * Falls back to a birds-eye view if there is no line of sight behind the Player.
+     *
+     * @param eyeLocation The eye Location of the Player which should be spectated.
+     * @param direction   The direction the Player is looking in.
+     * @param blockAccess    The access the blocks should be read from.
+     * @param heightmapCache The heightmaps for checking the birds-eye view, may be null.
+     * @return The distance behind the Player, {@link SpectatablePlayer#BIRDS_EYE_VIEW} or {@link SpectatablePlayer#ABOVE_PLAYER_VIEW}.
+     */
+    private static double solveFullCameraDistance(Location eyeLocation, Vector direction, BlockAccess blockAccess,
+                                                  HeightmapCache heightmapCache) {
+        // Use a Raytrace to check if and from where there is a line of sight
+        Raytrace raytrace = new Raytrace(eyeLocation.getX(), eyeLocation.getY(), eyeLocation.getZ(),
+                -direction.getX(), -direction.getY(), -direction.getZ());
+        double cameraDistance = raytrace.getMostDistantDistance(MAX_CAMERA_DISTANCE, 0.5, blockAccess);
+
+        if (cameraDistance >= 0) {
+            return cameraDistance;
+        }
+
+        // Check the column above the block of the Player's eyes, the eyes themselves are blocked
+        double columnStart = Math.floor(eyeLocation.getY()) + 1;
+
+        // Everything above the highest non-transparent block is free, a block between the eyes and the camera blocks the view
+        if (heightmapCache != null) {
+            int highestBlockY = heightmapCache.getHighestBlockY(eyeLocation.getWorld(), eyeLocation.getBlockX(), eyeLocation.getBlockZ());
+
+            if (highestBlockY < columnStart) {
+                return BIRDS_EYE_VIEW;
+            } else if (highestBlockY <= eyeLocation.getY() + 4) {
+                return ABOVE_PLAYER_VIEW;
+            }
+        }
+
+        // The highest block is too far up to tell, e.g. in caves
+        Raytrace birdViewRaytrace = new Raytrace(eyeLocation.getX(), columnStart, eyeLocation.getZ(), 0, 1, 0);
+
+        // Check if there is a line of sight for the birds-eye view
+        if (birdViewRaytrace.getHitDistance(eyeLocation.getY() + 4 - columnStart, blockAccess) != Double.POSITIVE_INFINITY) {
+            return ABOVE_PLAYER_VIEW;
         }
 
-        return cameraLocation;
+        return BIRDS_EYE_VIEW;
     }
 
 }
@@ -2,60 +2,118 @@ package net.seliba.thirdpersonspectator.model;
 
 import org.bukkit.entity.Player;
 
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.UUID;
 
 /**
  * Factory which returns {@link SpectatablePlayer} from Bukkit {@link Player}s.
- * Uses a cache to avoid redundant object creation and exposes it.
+ * Uses a registry keyed by the Player's UUID to avoid redundant object creation and exposes it.
  */
 public final class SpectatablePlayerFactory {
 
-    private static final Set<SpectatablePlayer> cachedPlayers = new HashSet<>();
+    private static final Map<UUID, SpectatablePlayer> cachedPlayers = new HashMap<>();
+    private static final Collection<SpectatablePlayer> cachedPlayersView = Collections.unmodifiableCollection(cachedPlayers.values());
+    private static final Map<UUID, SpectatablePlayer> spectatedPlayers = new HashMap<>();
 
     /**
      * Static factory method for getting a {@link SpectatablePlayer} from a {@link Player}.
-     * May return a cached {@link SpectatablePlayer} if this method was called before.
+     * Returns the registered {@link SpectatablePlayer} and registers the Player if this didn't happen yet.
      *
      * @param bukkitPlayer The Player whose {@link SpectatablePlayer} representation should be accessed.
      * @return The {@link SpectatablePlayer} representation of the provided Player.
      */
     public static SpectatablePlayer get(Player bukkitPlayer) {
-        Optional<SpectatablePlayer> cachedPlayer = findInCache(bukkitPlayer);
+        var cachedPlayer = cachedPlayers.get(bukkitPlayer.getUniqueId());
 
-        if (cachedPlayer.isPresent()) {
-            return cachedPlayer.get();
+        if (cachedPlayer != null) {
+            return cachedPlayer;
         }
 
+        return register(bukkitPlayer);
+    }
+
+    /**
+     * Returns the registered {@link SpectatablePlayer} of a Player without registering him.
+     * Used by frequently called listeners, which should ignore Players the plugin doesn't know.
+     *
+     * @param bukkitPlayer The Player whose {@link SpectatablePlayer} representation should be accessed.
+     * @return The {@link SpectatablePlayer} representation of the provided Player, null if he is not registered.
+     */
+    public static SpectatablePlayer getIfRegistered(Player bukkitPlayer) {
+        return cachedPlayers.get(bukkitPlayer.getUniqueId());
+    }
+
+    /**
+     * Creates the {@link SpectatablePlayer} representation of a Player and adds it to the registry.
+     * Called in the {@link net.seliba.thirdpersonspectator.listener.PlayerJoinListener}.
+     *
+     * @param bukkitPlayer The Player who should be registered.
+     * @return The new {@link SpectatablePlayer} representation of the provided Player.
+     */
+    public static SpectatablePlayer register(Player bukkitPlayer) {
         var player = new SpectatablePlayer(bukkitPlayer);
-        cachedPlayers.add(player);
+        cachedPlayers.put(bukkitPlayer.getUniqueId(), player);
 
         return player;
     }
 
     /**
-     * Tries to locate a {@link SpectatablePlayer} in the cache.
-     * Empty if it doesn't contain the requested Player.
+     * Removes the {@link SpectatablePlayer} representation of a Player from the registry.
+     * Called in the {@link net.seliba.thirdpersonspectator.listener.PlayerQuitListener}.
+     *
+     * @param bukkitPlayer The Player who should be removed.
+     * @return The removed {@link SpectatablePlayer}, null if the Player was not registered.
+     */
+    public static SpectatablePlayer unregister(Player bukkitPlayer) {
+        return cachedPlayers.remove(bukkitPlayer.getUniqueId());
+    }
+
+    /**
+     * Returns the {@link SpectatablePlayer} which is currently spectated by the provided Player.
+     * Empty if the Player is not in a third-person view.
+     *
+     * @param spectator The Player whose spectated Player should be accessed.
+     * @return The spectated Player, empty if there is none.
+     */
+    public static Optional<SpectatablePlayer> getSpectatedPlayer(Player spectator) {
+        return Optional.ofNullable(spectatedPlayers.get(spectator.getUniqueId()));
+    }
+
+    /**
+     * Remembers that the provided Player is spectating the provided {@link SpectatablePlayer}.
+     * Called by {@link SpectatablePlayer#startSpectating(Player)}.
+     *
+     * @param spectator The Player who spectates.
+     * @param target    The Player who is spectated.
+     */
+    static void setSpectatedPlayer(Player spectator, SpectatablePlayer target) {
+        spectatedPlayers.put(spectator.getUniqueId(), target);
+    }
+
+    /**
+     * Forgets that the provided Player is spectating the provided {@link SpectatablePlayer}.
+     * Called by {@link SpectatablePlayer#stopSpectating(Player)}.
      *
-     * @param bukkitPlayer The Player which should be located.
-     * @return The cached Player, empty if there is none.
+     * @param spectator The Player who no longer spectates.
+     * @param target    The Player who is no longer spectated.
      */
-    private static Optional<SpectatablePlayer> findInCache(Player bukkitPlayer) {
-        return cachedPlayers.stream()
-                .filter(spectatablePlayer -> spectatablePlayer.getBukkitPlayer() == bukkitPlayer)
-                .findFirst();
+    static void removeSpectatedPlayer(Player spectator, SpectatablePlayer target) {
+        spectatedPlayers.remove(spectator.getUniqueId(), target);
     }
 
     /**
-     * Returns all cached spectatable Players.
+     * Returns all cached spectatable Players as an unmodifiable view.
      * Players will be cached in the {@link net.seliba.thirdpersonspectator.listener.PlayerJoinListener}
      * automatically so this should always return the representation of all online Players.
      *
      * @return All {@link SpectatablePlayer}s that are currently cached.
      */
-    public static Set<SpectatablePlayer> getCachedPlayers() {
-        return cachedPlayers;
+    public static Collection<SpectatablePlayer> getCachedPlayers() {
+        return cachedPlayersView;
     }
 
 }
@@ -0,0 +1,53 @@
+package net.seliba.thirdpersonspectator.model;
+
+import net.seliba.thirdpersonspectator.configuration.ConfigurationProvider;
+import net.seliba.thirdpersonspectator.configuration.types.Message;
+import net.seliba.thirdpersonspectator.utils.SoundUtils;
+import org.bukkit.entity.Player;
+
+/**
+ * Moves Players into the third-person view of others after checking whether the target can be spectated.
+ * Shared by the spectate command and the {@link net.seliba.thirdpersonspectator.gui.SpectateGUI},
+ * so both report failures the same way.
+ */
+public final class SpectateService {
+
+    private final ConfigurationProvider configurationProvider;
+
+    /**
+     * The default constructor.
+     *
+     * @param configurationProvider The provider of configurations for the plugin.
+     */
+    public SpectateService(ConfigurationProvider configurationProvider) {
+        this.configurationProvider = configurationProvider;
+    }
+
+    /**
+     * Lets the provided Player spectate the target from a third-person view if possible.
+     * Sends an error message and plays the fail sound otherwise.
+     *
+     * @param spectator    The Player who wants to spectate.
+     * @param targetPlayer The Player who should be spectated, null if he is not online.
+     * @return Whether or not the Player is spectating the target now.
+     */
+    public boolean spectate(Player spectator, Player targetPlayer) {
+        if (targetPlayer == null) {
+            spectator.sendMessage(configurationProvider.getMessage(Message.PLAYER_NOT_ONLINE));
+            SoundUtils.playFailSound(spectator);
+            return false;
+        }
+
+        // Check if the Player can spectate the requested Player
+        var spectatablePlayer = SpectatablePlayerFactory.get(targetPlayer);
+        if (!spectatablePlayer.isSpectatable() || targetPlayer == spectator) {
+            spectator.sendMessage(configurationProvider.getMessage(Message.INVALID_TARGET));
+            SoundUtils.playFailSound(spectator);
+            return false;
+        }
+
+        spectatablePlayer.startSpectating(spectator);
+        return true;
+    }
+
+}
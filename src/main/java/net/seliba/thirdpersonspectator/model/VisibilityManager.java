@@ -0,0 +1,55 @@
+package net.seliba.thirdpersonspectator.model;
+
+import net.seliba.thirdpersonspectator.ThirdPersonSpectator;
+import org.bukkit.entity.Player;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Hides third-person spectators from each other for a better viewing experience.
+ * Every pair of spectators is hidden exactly once, so joining or leaving only sends the difference.
+ */
+final class VisibilityManager {
+
+    private static final Set<Player> hiddenSpectators = new HashSet<>();
+
+    /**
+     * Hides the provided spectator from all other spectators and the other way around.
+     * Does nothing if the spectator is already hidden.
+     *
+     * @param spectator The Player who started spectating.
+     */
+    static void hide(Player spectator) {
+        if (hiddenSpectators.contains(spectator)) {
+            return;
+        }
+
+        var plugin = ThirdPersonSpectator.getPlugin(ThirdPersonSpectator.class);
+        for (Player hiddenSpectator : hiddenSpectators) {
+            hiddenSpectator.hidePlayer(plugin, spectator);
+            spectator.hidePlayer(plugin, hiddenSpectator);
+        }
+
+        hiddenSpectators.add(spectator);
+    }
+
+    /**
+     * Shows the provided spectator to all other spectators again and the other way around.
+     * Does nothing if the spectator is not hidden.
+     *
+     * @param spectator The Player who stopped spectating.
+     */
+    static void show(Player spectator) {
+        if (!hiddenSpectators.remove(spectator)) {
+            return;
+        }
+
+        var plugin = ThirdPersonSpectator.getPlugin(ThirdPersonSpectator.class);
+        for (Player hiddenSpectator : hiddenSpectators) {
+            hiddenSpectator.showPlayer(plugin, spectator);
+            spectator.showPlayer(plugin, hiddenSpectator);
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+package net.seliba.thirdpersonspectator.scheduler;
+
+import net.seliba.thirdpersonspectator.model.SpectatablePlayer;
+import org.bukkit.Location;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Solves spectator cameras in parallel on a bounded pool of worker threads.
+ * Solutions are queued and applied together on the main thread at the start of the next camera update of the {@link SpectatorScheduler},
+ * so only the packet dispatch happens on the main thread and cameras never change in between two updates.
+ */
+public final class CameraSolver {
+
+    private final ForkJoinPool pool;
+    private final Queue<SolvedCamera> solvedCameras = new ConcurrentLinkedQueue<>();
+    private final Logger logger;
+
+    private final LongAdder solveNanos = new LongAdder();
+    private final LongAdder solveCount = new LongAdder();
+
+    /**
+     * The default constructor.
+     *
+     * @param logger      The logger failed solutions should be reported to.
+     * @param parallelism The amount of worker threads.
+     */
+    CameraSolver(Logger logger, int parallelism) {
+        this.logger = logger;
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("ThirdPersonSpectator Camera Solver #" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Solves the camera of the provided Player on one of the worker threads.
+     *
+     * @param spectatablePlayer The Player whose camera should be solved.
+     * @param eyeLocation       The eye Location the camera is solved for.
+     * @param stamp             The stamp of the camera solution cache when the blocks for the solution were read.
+     * @param solution          The calculation of the camera, may not access the live World.
+     */
+    public void solve(SpectatablePlayer spectatablePlayer, Location eyeLocation, long stamp, DoubleSupplier solution) {
+        pool.execute(() -> {
+            double cameraDistance = Double.NaN;
+            long startTime = System.nanoTime();
+
+            try {
+                cameraDistance = solution.getAsDouble();
+                solveNanos.add(System.nanoTime() - startTime);
+                solveCount.increment();
+            } catch (RuntimeException exception) {
+                logger.log(Level.WARNING, "Could not solve the camera of " + spectatablePlayer.getBukkitPlayer().getName(), exception);
+            } finally {
+                // Always complete so the Player can request new solutions
+                complete(spectatablePlayer, eyeLocation, stamp, cameraDistance);
+            }
+        });
+    }
+
+    /**
+     * Queues an already known camera solution, e.g. from the cache.
+     *
+     * @param spectatablePlayer The Player whose camera has been solved.
+     * @param eyeLocation       The eye Location the camera has been solved for.
+     * @param stamp             The stamp of the camera solution cache when the blocks for the solution were read.
+     * @param cameraDistance    The solved camera.
+     */
+    public void complete(SpectatablePlayer spectatablePlayer, Location eyeLocation, long stamp, double cameraDistance) {
+        solvedCameras.add(new SolvedCamera(spectatablePlayer, eyeLocation, stamp, cameraDistance));
+    }
+
+    /**
+     * Applies all solutions queued until now to their Players on the main thread.
+     * Solutions finished while applying are left for the next call.
+     *
+     * @param interpolatingPlayers The Players whose camera has to be interpolated, will be extended.
+     */
+    void applySolvedCameras(Set<SpectatablePlayer> interpolatingPlayers) {
+        for (int remaining = solvedCameras.size(); remaining > 0; remaining--) {
+            var solvedCamera = solvedCameras.poll();
+            if (solvedCamera.spectatablePlayer.applyCameraSolution(solvedCamera.eyeLocation, solvedCamera.stamp, solvedCamera.cameraDistance)) {
+                interpolatingPlayers.add(solvedCamera.spectatablePlayer);
+            }
+        }
+    }
+
+    /**
+     * Returns the average time it took to solve a camera on the worker threads.
+     *
+     * @return The average solve time in microseconds.
+     */
+    public double getAverageSolveMicros() {
+        long count = solveCount.sum();
+        return count == 0 ? 0 : solveNanos.sum() / 1000.0 / count;
+    }
+
+    /**
+     * Returns the amount of cameras solved on the worker threads.
+     *
+     * @return The amount of solved cameras.
+     */
+    public long getSolveCount() {
+        return solveCount.sum();
+    }
+
+    /**
+     * Stops the worker threads, pending solutions are discarded.
+     */
+    void shutdown() {
+        pool.shutdownNow();
+        solvedCameras.clear();
+    }
+
+    /**
+     * A solved camera waiting to be applied on the main thread.
+     */
+    private static final class SolvedCamera {
+
+        private final SpectatablePlayer spectatablePlayer;
+        private final Location eyeLocation;
+        private final long stamp;
+        private final double cameraDistance;
+
+        private SolvedCamera(SpectatablePlayer spectatablePlayer, Location eyeLocation, long stamp, double cameraDistance) {
+            this.spectatablePlayer = spectatablePlayer;
+            this.eyeLocation = eyeLocation;
+            this.stamp = stamp;
+            this.cameraDistance = cameraDistance;
+        }
+
+    }
+
+}
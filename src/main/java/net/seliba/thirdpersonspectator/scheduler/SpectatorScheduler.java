@@ -1,16 +1,97 @@
 package net.seliba.thirdpersonspectator.scheduler;
 
+import net.seliba.thirdpersonspectator.configuration.ConfigurationProvider;
+import net.seliba.thirdpersonspectator.configuration.types.MainConfig;
+import net.seliba.thirdpersonspectator.model.CameraSolutionCache;
+import net.seliba.thirdpersonspectator.model.ChunkSnapshotCache;
+import net.seliba.thirdpersonspectator.model.HeightmapCache;
 import net.seliba.thirdpersonspectator.model.SpectatablePlayer;
-import net.seliba.thirdpersonspectator.model.SpectatablePlayerFactory;
+import net.seliba.thirdpersonspectator.utils.NMSUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
 /**
  * Scheduler which updates the ArmorStand positions for the Player spectating system periodically.
+ * Only Players with at least one spectator are updated, grouped by the World they are in.
+ * With dirty tracking enabled, only Players which have been marked as moved are updated.
+ * With async solving enabled or too many spectated Players for the main thread, cameras are solved in parallel
+ * by a {@link CameraSolver} and only the packets are sent by this scheduler.
+ * With a tick budget, the whole tick stops once the budget is used up: moving cameras are interpolated first
+ * and cameras solved on the main thread are calculated in order of their staleness with the remaining time.
+ * Unfinished interpolations and calculations are carried over to the next tick.
  */
 public final class SpectatorScheduler {
 
+    private final Map<UUID, Set<SpectatablePlayer>> activePlayersByWorld = new HashMap<>();
+    private final Map<SpectatablePlayer, UUID> activePlayerWorlds = new HashMap<>();
+    private final Set<SpectatablePlayer> dirtyPlayers = new HashSet<>();
+    private final Set<SpectatablePlayer> interpolatingPlayers = new LinkedHashSet<>();
+    private final List<SpectatablePlayer> tickedPlayers = new ArrayList<>();
+    private final Map<SpectatablePlayer, CameraUpdate> cameraUpdates = new HashMap<>();
+    private final List<CameraUpdate> pendingUpdates = new ArrayList<>();
+    private final Comparator<CameraUpdate> updatePriorityOrder = Comparator.comparingLong((CameraUpdate update) -> update.priority).reversed();
+    private final CameraSolutionCache cameraSolutionCache;
+    private final ChunkSnapshotCache chunkSnapshotCache = new ChunkSnapshotCache();
+    private final HeightmapCache heightmapCache = new HeightmapCache();
+
+    private final boolean dirtyTracking;
+    private final double positionEpsilon;
+    private final float rotationEpsilon;
+    private final int teleportInterval;
+    private final int updateInterval;
+    private final boolean lazySpectatorRelocation;
+    private final double spectatorRelocationRadius;
+    private final boolean springArm;
+    private final double springArmExtensionSpeed;
+    private final boolean asyncSolving;
+    private final int parallelSolvingThreshold;
+    private final int parallelSolvingThreads;
+    private final long tickBudgetNanos;
+
+    private CameraSolver cameraSolver;
+
     private boolean hasStarted = false;
+    private int ticksSinceUpdate = 0;
+    private long updateCount = 0;
+
+    private long skippedUpdates = 0;
+    private long skippedInterpolations = 0;
+    private long budgetOverruns = 0;
+
+    /**
+     * The default constructor.
+     *
+     * @param configurationProvider The provider of configurations for the plugin.
+     */
+    public SpectatorScheduler(ConfigurationProvider configurationProvider) {
+        this.dirtyTracking = configurationProvider.getBoolean(MainConfig.CAMERA_DIRTY_TRACKING);
+        this.positionEpsilon = configurationProvider.getDouble(MainConfig.CAMERA_POSITION_EPSILON);
+        this.rotationEpsilon = (float) configurationProvider.getDouble(MainConfig.CAMERA_ROTATION_EPSILON);
+        this.teleportInterval = (int) configurationProvider.getLong(MainConfig.CAMERA_TELEPORT_INTERVAL);
+        this.updateInterval = (int) Math.max(1, configurationProvider.getLong(MainConfig.CAMERA_UPDATE_INTERVAL));
+        this.lazySpectatorRelocation = configurationProvider.getBoolean(MainConfig.CAMERA_LAZY_SPECTATOR_RELOCATION);
+        this.spectatorRelocationRadius = configurationProvider.getDouble(MainConfig.CAMERA_SPECTATOR_RELOCATION_RADIUS);
+        this.springArm = configurationProvider.getBoolean(MainConfig.CAMERA_SPRING_ARM);
+        this.springArmExtensionSpeed = Math.max(0.1, configurationProvider.getDouble(MainConfig.CAMERA_SPRING_ARM_EXTENSION_SPEED));
+        this.asyncSolving = configurationProvider.getBoolean(MainConfig.CAMERA_ASYNC_SOLVING);
+        this.parallelSolvingThreshold = (int) configurationProvider.getLong(MainConfig.CAMERA_PARALLEL_SOLVING_THRESHOLD);
+        this.parallelSolvingThreads = (int) configurationProvider.getLong(MainConfig.CAMERA_PARALLEL_SOLVING_THREADS);
+        this.tickBudgetNanos = (long) (configurationProvider.getDouble(MainConfig.CAMERA_TICK_BUDGET) * 1_000_000);
+        this.cameraSolutionCache = new CameraSolutionCache(
+                (int) configurationProvider.getLong(MainConfig.CAMERA_CACHE_SIZE),
+                (float) configurationProvider.getDouble(MainConfig.CAMERA_CACHE_ANGLE_STEP)
+        );
+    }
 
     /**
      * Starts this scheduler.
@@ -20,14 +101,491 @@ public final class SpectatorScheduler {
      */
     public void start(Plugin plugin) {
         if (!hasStarted) {
-            Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin,
-                    () -> SpectatablePlayerFactory.getCachedPlayers().forEach(SpectatablePlayer::updateCamera),
-                    1L,
-                    1L
-            );
+            if (asyncSolving || parallelSolvingThreshold > 0) {
+                // Leave one core for the main thread unless the amount of threads is configured
+                int parallelism = parallelSolvingThreads > 0
+                        ? parallelSolvingThreads
+                        : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+                cameraSolver = new CameraSolver(plugin.getLogger(), parallelism);
+            }
+
+            Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this::tick, 1L, 1L);
 
             hasStarted = true;
         }
     }
 
+    /**
+     * Stops the worker threads of this scheduler if async or parallel solving is enabled.
+     * Should be called when the plugin is disabled.
+     */
+    public void stop() {
+        if (cameraSolver != null) {
+            cameraSolver.shutdown();
+            cameraSolver = null;
+        }
+    }
+
+    /**
+     * Marks the provided Player as spectated so his camera will be updated.
+     * Moves him to the group of his current World if he was already active in another one.
+     *
+     * @param spectatablePlayer The Player who has at least one spectator.
+     */
+    public void activate(SpectatablePlayer spectatablePlayer) {
+        UUID worldId = spectatablePlayer.getBukkitPlayer().getWorld().getUID();
+        UUID previousWorldId = activePlayerWorlds.put(spectatablePlayer, worldId);
+
+        if (worldId.equals(previousWorldId)) {
+            return;
+        }
+
+        if (previousWorldId != null) {
+            activePlayersByWorld.get(previousWorldId).remove(spectatablePlayer);
+        }
+
+        activePlayersByWorld.computeIfAbsent(worldId, id -> new HashSet<>()).add(spectatablePlayer);
+    }
+
+    /**
+     * Marks the provided Player as no longer spectated so his camera will be ignored.
+     *
+     * @param spectatablePlayer The Player who has no spectators anymore.
+     */
+    public void deactivate(SpectatablePlayer spectatablePlayer) {
+        UUID worldId = activePlayerWorlds.remove(spectatablePlayer);
+
+        if (worldId != null) {
+            activePlayersByWorld.get(worldId).remove(spectatablePlayer);
+            dirtyPlayers.remove(spectatablePlayer);
+            interpolatingPlayers.remove(spectatablePlayer);
+
+            var cameraUpdate = cameraUpdates.remove(spectatablePlayer);
+            if (cameraUpdate != null && cameraUpdate.isPending) {
+                pendingUpdates.remove(cameraUpdate);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the camera of the provided Player is currently updated by this scheduler.
+     *
+     * @param spectatablePlayer The Player who should be checked.
+     * @return Whether or not the Player is spectated.
+     */
+    public boolean isActive(SpectatablePlayer spectatablePlayer) {
+        return activePlayerWorlds.containsKey(spectatablePlayer);
+    }
+
+    /**
+     * Marks the camera of the provided Player for recalculation in the next tick.
+     * Ignored if the Player has no spectators or dirty tracking is disabled.
+     *
+     * @param spectatablePlayer The Player who has moved.
+     */
+    public void markDirty(SpectatablePlayer spectatablePlayer) {
+        if (dirtyTracking && activePlayerWorlds.containsKey(spectatablePlayer)) {
+            dirtyPlayers.add(spectatablePlayer);
+        }
+    }
+
+    /**
+     * Returns whether cameras are only recalculated after being marked as dirty.
+     *
+     * @return Whether or not dirty tracking is enabled.
+     * @see SpectatorScheduler#markDirty(SpectatablePlayer)
+     */
+    public boolean isDirtyTracking() {
+        return dirtyTracking;
+    }
+
+    /**
+     * Returns the distance in blocks a Player has to move before his camera is recalculated.
+     *
+     * @return The position epsilon.
+     */
+    public double getPositionEpsilon() {
+        return positionEpsilon;
+    }
+
+    /**
+     * Returns the angle in degrees a Player has to turn before his camera is recalculated.
+     *
+     * @return The rotation epsilon.
+     */
+    public float getRotationEpsilon() {
+        return rotationEpsilon;
+    }
+
+    /**
+     * Returns the amount of relative camera moves after which the camera is teleported.
+     *
+     * @return The teleport interval.
+     */
+    public int getTeleportInterval() {
+        return teleportInterval;
+    }
+
+    /**
+     * Returns the amount of ticks between two camera calculations.
+     *
+     * @return The update interval.
+     */
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    /**
+     * Returns whether spectators are only teleported after the camera crossed a chunk border or moved too far away.
+     *
+     * @return Whether or not lazy spectator relocation is enabled.
+     */
+    public boolean isLazySpectatorRelocation() {
+        return lazySpectatorRelocation;
+    }
+
+    /**
+     * Returns the distance in blocks the camera may move away from the spectators before they are teleported.
+     *
+     * @return The spectator relocation radius.
+     */
+    public double getSpectatorRelocationRadius() {
+        return spectatorRelocationRadius;
+    }
+
+    /**
+     * Returns whether cameras are placed on a spring arm which remembers its length between updates.
+     *
+     * @return Whether or not the spring arm is enabled.
+     */
+    public boolean isSpringArm() {
+        return springArm;
+    }
+
+    /**
+     * Returns the distance in blocks the spring arm may grow per camera update.
+     *
+     * @return The spring arm extension speed.
+     */
+    public double getSpringArmExtensionSpeed() {
+        return springArmExtensionSpeed;
+    }
+
+    /**
+     * Returns the cache of camera solutions used by the spectated Players.
+     *
+     * @return The camera solution cache.
+     */
+    public CameraSolutionCache getCameraSolutionCache() {
+        return cameraSolutionCache;
+    }
+
+    /**
+     * Returns the cache of chunk snapshots used for solving cameras off the main thread.
+     *
+     * @return The chunk snapshot cache.
+     */
+    public ChunkSnapshotCache getChunkSnapshotCache() {
+        return chunkSnapshotCache;
+    }
+
+    /**
+     * Returns the cache of heightmaps used for checking the birds-eye view on the main thread.
+     *
+     * @return The heightmap cache.
+     */
+    public HeightmapCache getHeightmapCache() {
+        return heightmapCache;
+    }
+
+    /**
+     * Returns the solver which solves cameras off the main thread.
+     *
+     * @return The camera solver, null if neither async nor parallel solving is enabled or the scheduler has not been started.
+     */
+    public CameraSolver getCameraSolver() {
+        return cameraSolver;
+    }
+
+    /**
+     * Returns the amount of camera updates which have been carried over to the next tick because the tick budget was used up.
+     *
+     * @return The amount of skipped camera updates.
+     */
+    public long getSkippedUpdates() {
+        return skippedUpdates;
+    }
+
+    /**
+     * Returns the amount of interpolation steps which have been carried over to the next tick because the tick budget was used up.
+     *
+     * @return The amount of skipped interpolation steps.
+     */
+    public long getSkippedInterpolations() {
+        return skippedInterpolations;
+    }
+
+    /**
+     * Returns the amount of ticks which took longer than the tick budget.
+     *
+     * @return The amount of budget overruns.
+     */
+    public long getBudgetOverruns() {
+        return budgetOverruns;
+    }
+
+    /**
+     * Returns the amount of Players whose camera is currently updated by this scheduler.
+     *
+     * @return The amount of spectated Players.
+     */
+    public int getActivePlayerCount() {
+        return activePlayerWorlds.size();
+    }
+
+    /**
+     * Calculates the cameras of all spectated Players or only the dirty ones if dirty tracking is enabled
+     * every update interval and moves the cameras towards their calculated Location every tick.
+     * With a tick budget, the interpolation and the calculation of cameras on the main thread share one deadline.
+     */
+    private void tick() {
+        if (activePlayerWorlds.isEmpty()) {
+            return;
+        }
+
+        long startTime = System.nanoTime();
+
+        // Camera packets are flushed once per connection after all cameras have been updated
+        NMSUtils.startBatch();
+        try {
+            if (++ticksSinceUpdate >= updateInterval) {
+                ticksSinceUpdate = 0;
+                updateCameras();
+            }
+
+            if (tickBudgetNanos > 0) {
+                // Keep moving cameras smooth first, new Locations are calculated with the remaining time
+                interpolateCameras(startTime);
+                updatePendingCameras(startTime);
+
+                if (System.nanoTime() - startTime > tickBudgetNanos) {
+                    budgetOverruns++;
+                }
+            } else {
+                interpolateCameras(startTime);
+            }
+        } finally {
+            NMSUtils.flushBatch();
+        }
+    }
+
+    /**
+     * Calculates the cameras of all spectated Players or only the dirty ones if dirty tracking is enabled.
+     * With a tick budget, cameras solved on the main thread are only queued and calculated within the budget.
+     */
+    private void updateCameras() {
+        // Cameras solved off the main thread since the last update are applied together, before new ones are requested
+        if (cameraSolver != null) {
+            cameraSolver.applySolvedCameras(interpolatingPlayers);
+        }
+
+        if (dirtyTracking) {
+            tickedPlayers.addAll(dirtyPlayers);
+            dirtyPlayers.clear();
+        } else {
+            collectActivePlayers();
+        }
+
+        // Update outside of the iteration as Players may stop being active while updating
+        if (isSolvingOffThread()) {
+            for (SpectatablePlayer spectatablePlayer : tickedPlayers) {
+                spectatablePlayer.requestCameraUpdate(cameraSolver);
+            }
+
+            chunkSnapshotCache.finishUpdate();
+        } else if (tickBudgetNanos > 0) {
+            for (SpectatablePlayer spectatablePlayer : tickedPlayers) {
+                queueCameraUpdate(spectatablePlayer);
+            }
+        } else {
+            for (SpectatablePlayer spectatablePlayer : tickedPlayers) {
+                if (spectatablePlayer.updateCamera()) {
+                    interpolatingPlayers.add(spectatablePlayer);
+                }
+            }
+        }
+
+        tickedPlayers.clear();
+    }
+
+    /**
+     * Queues the camera of the provided Player for a calculation within the tick budget.
+     * Cameras which are already queued keep their place.
+     *
+     * @param spectatablePlayer The Player whose camera should be calculated.
+     */
+    private void queueCameraUpdate(SpectatablePlayer spectatablePlayer) {
+        var cameraUpdate = cameraUpdates.computeIfAbsent(spectatablePlayer, CameraUpdate::new);
+
+        if (!cameraUpdate.isPending) {
+            cameraUpdate.isPending = true;
+            pendingUpdates.add(cameraUpdate);
+        }
+    }
+
+    /**
+     * Calculates the queued cameras on the main thread until the tick budget is used up.
+     * The stalest cameras with the most spectators are calculated first, so skipped cameras are calculated in one of the next ticks.
+     * At least one camera is calculated per tick.
+     *
+     * @param startTime The time in nanoseconds the current tick has started at.
+     */
+    private void updatePendingCameras(long startTime) {
+        if (pendingUpdates.isEmpty()) {
+            return;
+        }
+
+        updateCount++;
+
+        // Priorities are calculated once, so the comparator only has to read them
+        for (CameraUpdate cameraUpdate : pendingUpdates) {
+            long staleness = updateCount - cameraUpdate.lastUpdate;
+            cameraUpdate.priority = staleness * Math.max(1, cameraUpdate.spectatablePlayer.getSpectatingPlayers().size());
+        }
+        pendingUpdates.sort(updatePriorityOrder);
+
+        // Work on a copy as Players may stop being active and leave the queue while updating
+        for (CameraUpdate cameraUpdate : pendingUpdates) {
+            tickedPlayers.add(cameraUpdate.spectatablePlayer);
+        }
+
+        int updatedPlayers = 0;
+        for (SpectatablePlayer spectatablePlayer : tickedPlayers) {
+            if (updatedPlayers > 0 && isBudgetUsedUp(startTime)) {
+                break;
+            }
+
+            updatedPlayers++;
+
+            var cameraUpdate = cameraUpdates.get(spectatablePlayer);
+            if (cameraUpdate == null) {
+                continue;
+            }
+
+            cameraUpdate.isPending = false;
+            cameraUpdate.lastUpdate = updateCount;
+
+            if (spectatablePlayer.updateCamera()) {
+                interpolatingPlayers.add(spectatablePlayer);
+            }
+        }
+
+        tickedPlayers.clear();
+        pendingUpdates.removeIf(cameraUpdate -> !cameraUpdate.isPending);
+        skippedUpdates += pendingUpdates.size();
+    }
+
+    /**
+     * Checks whether cameras should currently be solved by the camera solver instead of the main thread.
+     *
+     * @return Whether or not the camera solver should be used.
+     */
+    private boolean isSolvingOffThread() {
+        if (cameraSolver == null) {
+            return false;
+        }
+
+        return asyncSolving || activePlayerWorlds.size() > parallelSolvingThreshold;
+    }
+
+    /**
+     * Checks whether the tick budget has been used up in the current tick.
+     *
+     * @param startTime The time in nanoseconds the current tick has started at.
+     * @return Whether or not the budget is used up, always false if the budget is disabled.
+     */
+    private boolean isBudgetUsedUp(long startTime) {
+        return tickBudgetNanos > 0 && System.nanoTime() - startTime >= tickBudgetNanos;
+    }
+
+    /**
+     * Moves all cameras which have not reached their calculated Location yet one step further.
+     * Cameras which don't fit into the tick budget keep their place at the front of the queue and are moved in the next tick.
+     * At least one camera is moved per tick.
+     *
+     * @param startTime The time in nanoseconds the current tick has started at.
+     */
+    private void interpolateCameras(long startTime) {
+        if (interpolatingPlayers.isEmpty()) {
+            return;
+        }
+
+        tickedPlayers.addAll(interpolatingPlayers);
+
+        int movedPlayers = 0;
+        for (SpectatablePlayer spectatablePlayer : tickedPlayers) {
+            if (movedPlayers > 0 && isBudgetUsedUp(startTime)) {
+                skippedInterpolations += tickedPlayers.size() - movedPlayers;
+                break;
+            }
+
+            movedPlayers++;
+
+            // Moved cameras are queued again at the end, so skipped ones are moved first in the next tick
+            if (!interpolatingPlayers.remove(spectatablePlayer)) {
+                continue;
+            }
+
+            if (spectatablePlayer.interpolateCamera()) {
+                interpolatingPlayers.add(spectatablePlayer);
+            }
+        }
+
+        tickedPlayers.clear();
+    }
+
+    /**
+     * Collects all spectated Players for the current tick.
+     * Worlds without spectated Players or which have been unloaded are skipped.
+     */
+    private void collectActivePlayers() {
+        var iterator = activePlayersByWorld.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var worldEntry = iterator.next();
+
+            if (worldEntry.getValue().isEmpty()) {
+                iterator.remove();
+                continue;
+            }
+
+            if (Bukkit.getWorld(worldEntry.getKey()) == null) {
+                continue;
+            }
+
+            tickedPlayers.addAll(worldEntry.getValue());
+        }
+    }
+
+    /**
+     * The state of a camera which is calculated within the tick budget.
+     */
+    private static final class CameraUpdate {
+
+        private final SpectatablePlayer spectatablePlayer;
+
+        private long lastUpdate = 0;
+        private long priority = 0;
+        private boolean isPending = false;
+
+        /**
+         * The default constructor.
+         *
+         * @param spectatablePlayer The Player whose camera is calculated.
+         */
+        private CameraUpdate(SpectatablePlayer spectatablePlayer) {
+            this.spectatablePlayer = spectatablePlayer;
+        }
+
+    }
+
 }
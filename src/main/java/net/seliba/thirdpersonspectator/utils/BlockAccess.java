@@ -0,0 +1,25 @@
+package net.seliba.thirdpersonspectator.utils;
+
+import org.bukkit.Material;
+
+/**
+ * Provides the Materials of blocks to a {@link Raytrace}.
+ * Implementations decide whether the blocks are read from the live World or from a copy,
+ * which allows raytracing outside of the main thread.
+ *
+ * @see WorldBlockAccess
+ * @see ChunkSnapshotBlockAccess
+ */
+public interface BlockAccess {
+
+    /**
+     * Returns the Material of the block at the provided coordinates.
+     *
+     * @param x The x coordinate of the block.
+     * @param y The y coordinate of the block.
+     * @param z The z coordinate of the block.
+     * @return The Material of the block.
+     */
+    Material getType(int x, int y, int z);
+
+}
@@ -0,0 +1,130 @@
+package net.seliba.thirdpersonspectator.utils;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A virtual camera ArmorStand which only exists on the clients of its spectators.
+ * Consists of nothing but an entity id and the position which is sent in its spawn packet,
+ * so no Minecraft entity has to be created for it. Instances are pooled by {@link NMSUtils}.
+ *
+ * @see NMSUtils#spawnArmorStand(org.bukkit.Location)
+ */
+public final class CameraEntity {
+
+    private final int id;
+    private UUID uniqueId;
+
+    private double x;
+    private double y;
+    private double z;
+    private float yaw;
+    private float pitch;
+
+    /**
+     * The default constructor.
+     *
+     * @param id The entity id of this camera, has to be unique among all entities of the server.
+     */
+    CameraEntity(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Prepares this camera to be spawned at the provided position.
+     * Assigns a new unique id, so clients never mix up a reused camera with its previous spawn.
+     *
+     * @param x     The x coordinate of the camera.
+     * @param y     The y coordinate of the camera.
+     * @param z     The z coordinate of the camera.
+     * @param yaw   The yaw of the camera.
+     * @param pitch The pitch of the camera.
+     */
+    void reset(double x, double y, double z, float yaw, float pitch) {
+        var random = ThreadLocalRandom.current();
+        this.uniqueId = new UUID(random.nextLong(), random.nextLong());
+
+        setPosition(x, y, z, yaw, pitch);
+    }
+
+    /**
+     * Updates the position of this camera which is used when it is shown to new spectators.
+     *
+     * @param x     The x coordinate of the camera.
+     * @param y     The y coordinate of the camera.
+     * @param z     The z coordinate of the camera.
+     * @param yaw   The yaw of the camera.
+     * @param pitch The pitch of the camera.
+     */
+    void setPosition(double x, double y, double z, float yaw, float pitch) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.yaw = yaw;
+        this.pitch = pitch;
+    }
+
+    /**
+     * Returns the entity id of this camera.
+     *
+     * @return The entity id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the unique id sent in the spawn packet of this camera.
+     *
+     * @return The unique id.
+     */
+    UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    /**
+     * Returns the x coordinate of this camera.
+     *
+     * @return The x coordinate.
+     */
+    double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y coordinate of this camera.
+     *
+     * @return The y coordinate.
+     */
+    double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the z coordinate of this camera.
+     *
+     * @return The z coordinate.
+     */
+    double getZ() {
+        return z;
+    }
+
+    /**
+     * Returns the yaw of this camera.
+     *
+     * @return The yaw.
+     */
+    float getYaw() {
+        return yaw;
+    }
+
+    /**
+     * Returns the pitch of this camera.
+     *
+     * @return The pitch.
+     */
+    float getPitch() {
+        return pitch;
+    }
+
+}
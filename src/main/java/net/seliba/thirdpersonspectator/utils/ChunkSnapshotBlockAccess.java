@@ -0,0 +1,56 @@
+package net.seliba.thirdpersonspectator.utils;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+
+/**
+ * Reads blocks from {@link ChunkSnapshot}s of a square area of chunks.
+ * Can be used on any thread as the snapshots are not backed by the live World.
+ * Blocks outside of the snapshots are treated as solid, so cameras never leave the known area.
+ */
+public final class ChunkSnapshotBlockAccess implements BlockAccess {
+
+    private static final int WORLD_HEIGHT = 256;
+
+    private final ChunkSnapshot[] snapshots;
+    private final int minChunkX;
+    private final int minChunkZ;
+    private final int width;
+
+    /**
+     * The default constructor.
+     *
+     * @param snapshots The snapshots of the area, indexed by {@code (chunkX - minChunkX) * width + (chunkZ - minChunkZ)}.
+     *                  Entries may be null for chunks which are not loaded.
+     * @param minChunkX The smallest x coordinate of the chunks in the area.
+     * @param minChunkZ The smallest z coordinate of the chunks in the area.
+     * @param width     The amount of chunks along each axis of the area.
+     */
+    public ChunkSnapshotBlockAccess(ChunkSnapshot[] snapshots, int minChunkX, int minChunkZ, int width) {
+        this.snapshots = snapshots;
+        this.minChunkX = minChunkX;
+        this.minChunkZ = minChunkZ;
+        this.width = width;
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        if (y < 0 || y >= WORLD_HEIGHT) {
+            return Material.AIR;
+        }
+
+        int offsetX = (x >> 4) - minChunkX;
+        int offsetZ = (z >> 4) - minChunkZ;
+        if (offsetX < 0 || offsetX >= width || offsetZ < 0 || offsetZ >= width) {
+            return Material.BEDROCK;
+        }
+
+        var snapshot = snapshots[offsetX * width + offsetZ];
+        if (snapshot == null) {
+            return Material.BEDROCK;
+        }
+
+        return snapshot.getBlockType(x & 15, y, z & 15);
+    }
+
+}
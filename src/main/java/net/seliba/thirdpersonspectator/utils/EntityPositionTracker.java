@@ -0,0 +1,142 @@
+package net.seliba.thirdpersonspectator.utils;
+
+/**
+ * Tracks the position of a virtual entity as it is known by the clients.
+ * Positions are stored in the fixed-point format of the Minecraft protocol (1/4096 blocks),
+ * so relative moves add up to exactly the position the server has sent.
+ */
+public final class EntityPositionTracker {
+
+    private static final double POSITION_SCALE = 4096.0;
+
+    private long encodedX;
+    private long encodedY;
+    private long encodedZ;
+    private byte encodedYaw;
+
+    private long deltaX;
+    private long deltaY;
+    private long deltaZ;
+
+    private int movesSinceTeleport;
+
+    /**
+     * Checks whether the entity can be moved to the provided position with a relative move packet.
+     * This is the case if the delta fits into a short and the entity was teleported recently enough.
+     * The deltas are available through {@link EntityPositionTracker#getDeltaX()} and its siblings afterwards.
+     *
+     * @param x                The new x coordinate of the entity.
+     * @param y                The new y coordinate of the entity.
+     * @param z                The new z coordinate of the entity.
+     * @param teleportInterval The amount of relative moves after which a teleport is forced.
+     * @return Whether or not a relative move can be used.
+     */
+    public boolean canMoveRelative(double x, double y, double z, int teleportInterval) {
+        deltaX = encode(x) - encodedX;
+        deltaY = encode(y) - encodedY;
+        deltaZ = encode(z) - encodedZ;
+
+        return movesSinceTeleport < teleportInterval
+                && isShort(deltaX)
+                && isShort(deltaY)
+                && isShort(deltaZ);
+    }
+
+    /**
+     * Applies the deltas calculated by {@link EntityPositionTracker#canMoveRelative(double, double, double, int)}.
+     * Should be called after sending a relative move packet.
+     */
+    public void moveRelative() {
+        encodedX += deltaX;
+        encodedY += deltaY;
+        encodedZ += deltaZ;
+        movesSinceTeleport++;
+    }
+
+    /**
+     * Sets the position of the entity after a teleport packet has been sent.
+     *
+     * @param x The new x coordinate of the entity.
+     * @param y The new y coordinate of the entity.
+     * @param z The new z coordinate of the entity.
+     */
+    public void teleport(double x, double y, double z) {
+        encodedX = encode(x);
+        encodedY = encode(y);
+        encodedZ = encode(z);
+        movesSinceTeleport = 0;
+    }
+
+    /**
+     * Updates the head rotation known by the clients.
+     *
+     * @param yaw The new yaw as a protocol angle.
+     * @return Whether or not the rotation differs from the previous one.
+     */
+    public boolean rotateHead(byte yaw) {
+        if (yaw == encodedYaw) {
+            return false;
+        }
+
+        encodedYaw = yaw;
+        return true;
+    }
+
+    /**
+     * Returns the x delta of the last relative move check.
+     *
+     * @return The x delta in 1/4096 blocks.
+     */
+    public long getDeltaX() {
+        return deltaX;
+    }
+
+    /**
+     * Returns the y delta of the last relative move check.
+     *
+     * @return The y delta in 1/4096 blocks.
+     */
+    public long getDeltaY() {
+        return deltaY;
+    }
+
+    /**
+     * Returns the z delta of the last relative move check.
+     *
+     * @return The z delta in 1/4096 blocks.
+     */
+    public long getDeltaZ() {
+        return deltaZ;
+    }
+
+    /**
+     * Converts an angle in degrees to the byte format of the Minecraft protocol.
+     *
+     * @param degrees The angle in degrees.
+     * @return The angle in 1/256 turns.
+     */
+    public static byte encodeAngle(float degrees) {
+        return (byte) (int) (degrees * 256f / 360f);
+    }
+
+    /**
+     * Converts a coordinate to the fixed-point format of the Minecraft protocol.
+     *
+     * @param coordinate The coordinate in blocks.
+     * @return The coordinate in 1/4096 blocks.
+     */
+    private static long encode(double coordinate) {
+        return (long) Math.floor(coordinate * POSITION_SCALE);
+    }
+
+    /**
+     * Checks whether the provided delta can be sent in a relative move packet.
+     *
+     * @param delta The delta in 1/4096 blocks.
+     * @return Whether or not the delta fits into a short.
+     */
+    private static boolean isShort(long delta) {
+        return delta >= Short.MIN_VALUE && delta <= Short.MAX_VALUE;
+    }
+
+}
@@ -7,6 +7,7 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.SkullMeta;
 
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Utility class for constructing {@link ItemStack}s.
@@ -46,7 +47,17 @@ public final class ItemBuilder {
      * @return The instance of this ItemBuilder.
      */
     public ItemBuilder lore(String... lore) {
-        itemMeta.setLore(Arrays.asList(lore));
+        return lore(Arrays.asList(lore));
+    }
+
+    /**
+     * Changes the lore of this item.
+     *
+     * @param lore The new lore for this item.
+     * @return The instance of this ItemBuilder.
+     */
+    public ItemBuilder lore(List<String> lore) {
+        itemMeta.setLore(lore);
         return this;
     }
 
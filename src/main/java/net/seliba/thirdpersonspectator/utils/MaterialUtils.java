@@ -2,8 +2,7 @@ package net.seliba.thirdpersonspectator.utils;
 
 import org.bukkit.Material;
 
-import java.util.Arrays;
-import java.util.List;
+import java.util.Collection;
 
 /**
  * Utility class offering methods for working with the {@link Material} class.
@@ -11,26 +10,25 @@ import java.util.List;
 public final class MaterialUtils {
 
     /*
-    Hardcoded because of various reasons, mostly because we don't have access to the ConfigurationProvider here.
+    Indexed by Material#ordinal(), filled from the config through loadTransparentMaterials(Collection) on startup.
      */
-    private static final List<Material> transparentMaterials = Arrays.asList(
-            Material.AIR,
-            Material.CAVE_AIR,
-            Material.VOID_AIR,
-            Material.TALL_GRASS,
-            Material.SUNFLOWER,
-            Material.PEONY,
-            Material.LILAC,
-            Material.ROSE_BUSH,
-            Material.WATER,
-            Material.TALL_SEAGRASS,
-            Material.SEAGRASS,
-            Material.GRASS,
-            Material.FERN,
-            Material.LARGE_FERN,
-            Material.KELP_PLANT,
-            Material.SUGAR_CANE
-    );
+    private static volatile boolean[] transparentMaterials = new boolean[Material.values().length];
+
+    /**
+     * Replaces the set of Materials which are considered transparent.
+     * Should be called on startup before any {@link Raytrace} is used.
+     *
+     * @param materials The Materials which should be transparent.
+     */
+    public static void loadTransparentMaterials(Collection<Material> materials) {
+        boolean[] newTransparentMaterials = new boolean[Material.values().length];
+
+        for (Material material : materials) {
+            newTransparentMaterials[material.ordinal()] = true;
+        }
+
+        transparentMaterials = newTransparentMaterials;
+    }
 
     /**
      * Returns whether a Player can walk through the provided Material.
@@ -40,7 +38,7 @@ public final class MaterialUtils {
      * @return Whether or not this Material is transparent.
      */
     public static boolean isTransparent(Material material) {
-        return transparentMaterials.contains(material);
+        return transparentMaterials[material.ordinal()];
     }
 
 }
@@ -1,54 +1,146 @@
 package net.seliba.thirdpersonspectator.utils;
 
 import com.github.johnnyjayjay.compatre.NmsDependent;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import net.minecraft.server.v1_13_R2.*;
 import org.bukkit.Location;
 import org.bukkit.craftbukkit.v1_13_R2.CraftWorld;
 import org.bukkit.craftbukkit.v1_13_R2.entity.CraftPlayer;
 import org.bukkit.entity.Player;
 
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class which contains various utils for working with NMS (the net.minecraft.server package).
+ * Camera ArmorStands are purely virtual, their packets are written from primitive values.
  */
 @NmsDependent
 public class NMSUtils {
 
+    private static final int SPAWN_LIVING_PACKET_ID = getPacketId(new PacketPlayOutSpawnEntityLiving());
+    private static final int TELEPORT_PACKET_ID = getPacketId(new PacketPlayOutEntityTeleport());
+    private static final int HEAD_ROTATION_PACKET_ID = getPacketId(new PacketPlayOutEntityHeadRotation());
+    private static final int CAMERA_PACKET_ID = getPacketId(new PacketPlayOutCamera());
+    private static final int ARMOR_STAND_TYPE_ID = IRegistry.ENTITY_TYPE.a(EntityTypes.ARMOR_STAND);
+
+    private static final Field entityCountField = getEntityCountField();
+    private static final AtomicInteger fallbackEntityCounter = new AtomicInteger(Integer.MAX_VALUE);
+    private static final Queue<CameraEntity> cameraPool = new ConcurrentLinkedQueue<>();
+    private static volatile byte[] armorStandMetadata;
+
+    private static final Set<Channel> unflushedChannels = new HashSet<>();
+    private static boolean isBatching = false;
+
+    private static long batchedWrites = 0;
+    private static long batchedFlushes = 0;
+
+    /**
+     * Starts collecting broadcasted camera packets without flushing the connections.
+     * {@link NMSUtils#flushBatch()} has to be called afterwards to actually send them.
+     */
+    public static void startBatch() {
+        isBatching = true;
+    }
+
+    /**
+     * Flushes every connection which received camera packets since {@link NMSUtils#startBatch()} exactly once.
+     */
+    public static void flushBatch() {
+        isBatching = false;
+
+        for (Channel channel : unflushedChannels) {
+            channel.flush();
+        }
+
+        batchedFlushes += unflushedChannels.size();
+        unflushedChannels.clear();
+    }
+
+    /**
+     * Returns the amount of camera packets which have been written in batches.
+     *
+     * @return The amount of batched packet writes.
+     */
+    public static long getBatchedWrites() {
+        return batchedWrites;
+    }
+
+    /**
+     * Returns the amount of flushes which have been saved by batching camera packets.
+     *
+     * @return The amount of saved flushes.
+     */
+    public static long getSavedFlushes() {
+        return batchedWrites - batchedFlushes;
+    }
+
     /**
      * Spawns a virtual ArmorStand at the provided Location.
+     * Reuses the id of a previously released ArmorStand if possible, no Minecraft entity is created.
      *
      * @param location The Location where the ArmorStand should be spawned at.
      * @return The newly spawned ArmorStand.
      */
-    public static EntityArmorStand spawnArmorStand(Location location) {
-        WorldServer world = ((CraftWorld) location.getWorld()).getHandle();
-        EntityArmorStand armorStand = new EntityArmorStand(world, location.getX(), location.getY(), location.getZ());
+    public static CameraEntity spawnArmorStand(Location location) {
+        loadArmorStandMetadata(location.getWorld());
 
-        armorStand.setLocation(location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+        var armorStand = cameraPool.poll();
+        if (armorStand == null) {
+            armorStand = new CameraEntity(allocateEntityId());
+        }
 
+        armorStand.reset(location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
         return armorStand;
     }
 
+    /**
+     * Returns the provided ArmorStand to the pool so its id can be reused.
+     * Has to be removed for all Players with {@link NMSUtils#removeArmorStand(Player, CameraEntity)} first.
+     *
+     * @param armorStand The ArmorStand which is no longer used.
+     */
+    public static void releaseArmorStand(CameraEntity armorStand) {
+        cameraPool.add(armorStand);
+    }
+
     /**
      * Shows the provided virtual ArmorStand to the provided Player.
-     * {@link NMSUtils#spawnArmorStand(Location)} may be called first.
+     * {@link NMSUtils#spawnArmorStand(Location)} has to be called first.
      *
      * @param player     The Player which should see the ArmorStand.
      * @param armorStand The ArmorStand which should be shown.
      */
-    public static void showArmorStand(Player player, EntityArmorStand armorStand) {
-        // Update the properties of the ArmorStand
-        armorStand.setInvisible(true);
-        armorStand.setInvulnerable(true);
-        armorStand.setNoGravity(true);
-        armorStand.setBasePlate(false);
+    public static void showArmorStand(Player player, CameraEntity armorStand) {
+        byte yaw = EntityPositionTracker.encodeAngle(armorStand.getYaw());
 
-        // Send the packet
-        PacketPlayOutSpawnEntityLiving packet = new PacketPlayOutSpawnEntityLiving(armorStand);
-        sendPacket(player, packet);
+        // The spawn packet already contains the position and the invisible ArmorStand metadata
+        ByteBuf spawnPacket = createPacket(SPAWN_LIVING_PACKET_ID);
+        PacketDataSerializer serializer = new PacketDataSerializer(spawnPacket);
+        serializer.d(armorStand.getId());
+        serializer.a(armorStand.getUniqueId());
+        serializer.d(ARMOR_STAND_TYPE_ID);
+        serializer.writeDouble(armorStand.getX());
+        serializer.writeDouble(armorStand.getY());
+        serializer.writeDouble(armorStand.getZ());
+        serializer.writeByte(yaw);
+        serializer.writeByte(EntityPositionTracker.encodeAngle(armorStand.getPitch()));
+        serializer.writeByte(yaw);
+        serializer.writeShort(0);
+        serializer.writeShort(0);
+        serializer.writeShort(0);
+        serializer.writeBytes(armorStandMetadata);
 
-        teleportArmorStand(Set.of(player), armorStand, armorStand.getBukkitEntity().getLocation());
+        writePacket(getChannel(player), spawnPacket);
+        writePacket(getChannel(player), createHeadRotationPacket(armorStand, yaw));
     }
 
     /**
@@ -57,34 +149,53 @@ public class NMSUtils {
      * @param player     The Player which should no longer see the ArmorStand.
      * @param armorStand The ArmorStand which should be removed.
      */
-    public static void removeArmorStand(Player player, EntityArmorStand armorStand) {
+    public static void removeArmorStand(Player player, CameraEntity armorStand) {
         PacketPlayOutEntityDestroy packet = new PacketPlayOutEntityDestroy(armorStand.getId());
         sendPacket(player, packet);
     }
 
     /**
-     * Teleports the provided ArmorStand to the Location and shows the change to the Players.
-     * {@link NMSUtils#showArmorStand(Player, EntityArmorStand)} may be called first.
+     * Moves the provided ArmorStand to the Location and shows the change to the Players.
+     * Sends a relative move if the tracked position allows it and falls back to a teleport otherwise.
+     * {@link NMSUtils#showArmorStand(Player, CameraEntity)} may be called first.
      *
-     * @param players    The Players which should see the teleportation.
-     * @param armorStand The ArmorStand which should be teleported.
-     * @param location   The new ArmorStand of the Player.
+     * @param players          The Players which should see the movement.
+     * @param armorStand       The ArmorStand which should be moved.
+     * @param position         The position of the ArmorStand as known by the Players.
+     * @param location         The new Location of the ArmorStand.
+     * @param teleportInterval The amount of relative moves after which a teleport is forced.
      */
-    public static void teleportArmorStand(Set<Player> players, EntityArmorStand armorStand, Location location) {
-        // Set the new position of the ArmorStand, the yaw is ignored but we'll set it anyways
-        armorStand.setLocation(location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+    public static void moveArmorStand(Set<Player> players, CameraEntity armorStand, EntityPositionTracker position,
+                                      Location location, int teleportInterval) {
+        armorStand.setPosition(location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
 
-        // Construct the teleport packet, this does NOT include the head rotation
-        PacketPlayOutEntityTeleport packetPlayOutEntityTeleport = new PacketPlayOutEntityTeleport(armorStand);
+        byte yaw = EntityPositionTracker.encodeAngle(location.getYaw());
+        byte pitch = EntityPositionTracker.encodeAngle(location.getPitch());
+        ByteBuf movePacket;
 
-        // Construct the head rotation packet
-        // Convert the yaw to an angle first because NMS wants to be special
-        byte adjustedYaw = (byte) ((int) location.getYaw() * 256f / 360f);
-        PacketPlayOutEntityHeadRotation packetPlayOutEntityHeadRotation = new PacketPlayOutEntityHeadRotation(armorStand, adjustedYaw);
+        // Construct the move packet, this does NOT include the head rotation
+        if (position.canMoveRelative(location.getX(), location.getY(), location.getZ(), teleportInterval)) {
+            movePacket = encodePacket(new PacketPlayOutEntity.PacketPlayOutRelEntityMoveLook(armorStand.getId(),
+                    position.getDeltaX(), position.getDeltaY(), position.getDeltaZ(), yaw, pitch, false));
+            position.moveRelative();
+        } else {
+            movePacket = createPacket(TELEPORT_PACKET_ID);
+            PacketDataSerializer serializer = new PacketDataSerializer(movePacket);
+            serializer.d(armorStand.getId());
+            serializer.writeDouble(location.getX());
+            serializer.writeDouble(location.getY());
+            serializer.writeDouble(location.getZ());
+            serializer.writeByte(yaw);
+            serializer.writeByte(pitch);
+            serializer.writeBoolean(false);
+            position.teleport(location.getX(), location.getY(), location.getZ());
+        }
 
-        for (Player player : players) {
-            sendPacket(player, packetPlayOutEntityTeleport);
-            sendPacket(player, packetPlayOutEntityHeadRotation);
+        broadcastPacket(players, movePacket);
+
+        // Only send the head rotation if it actually changed
+        if (position.rotateHead(yaw)) {
+            broadcastPacket(players, createHeadRotationPacket(armorStand, yaw));
         }
     }
 
@@ -96,12 +207,193 @@ public class NMSUtils {
      * @param player     The Player which should spectate the ArmorStand.
      * @param armorStand The ArmorStand which should be spectated.
      */
-    public static void spectate(Player player, EntityArmorStand armorStand) {
+    public static void spectate(Player player, CameraEntity armorStand) {
         // Setting the spectator target to the Player will reset the camera
-        Entity spectatorTarget = armorStand == null ? ((CraftPlayer) player).getHandle() : armorStand;
-        PacketPlayOutCamera packet = new PacketPlayOutCamera(spectatorTarget);
+        ByteBuf packet = createPacket(CAMERA_PACKET_ID);
+        new PacketDataSerializer(packet).d(armorStand == null ? player.getEntityId() : armorStand.getId());
 
-        sendPacket(player, packet);
+        writePacket(getChannel(player), packet);
+    }
+
+    /**
+     * Creates the head rotation packet of the provided ArmorStand.
+     *
+     * @param armorStand The ArmorStand whose head is rotated.
+     * @param yaw        The new head rotation as a protocol angle.
+     * @return A new buffer containing the encoded packet.
+     */
+    private static ByteBuf createHeadRotationPacket(CameraEntity armorStand, byte yaw) {
+        ByteBuf packet = createPacket(HEAD_ROTATION_PACKET_ID);
+        PacketDataSerializer serializer = new PacketDataSerializer(packet);
+        serializer.d(armorStand.getId());
+        serializer.writeByte(yaw);
+
+        return packet;
+    }
+
+    /**
+     * Serializes the metadata of an invisible ArmorStand without gravity and base plate once.
+     * A single template ArmorStand is created for this, it is never added to the World.
+     *
+     * @param world A World the template ArmorStand can be created in.
+     */
+    private static void loadArmorStandMetadata(org.bukkit.World world) {
+        if (armorStandMetadata != null) {
+            return;
+        }
+
+        EntityArmorStand template = new EntityArmorStand(((CraftWorld) world).getHandle());
+        template.setInvisible(true);
+        template.setInvulnerable(true);
+        template.setNoGravity(true);
+        template.setBasePlate(false);
+
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            template.getDataWatcher().a(new PacketDataSerializer(buffer));
+        } catch (IOException exception) {
+            throw new IllegalStateException("Could not serialize the ArmorStand metadata", exception);
+        }
+
+        byte[] metadata = new byte[buffer.readableBytes()];
+        buffer.readBytes(metadata);
+        armorStandMetadata = metadata;
+    }
+
+    /**
+     * Allocates a new entity id from the entity counter of the server, so it never collides with a real entity.
+     * Spigot 1.13 counts entities with a plain int, which is only safe to increment on the main thread like the server does.
+     * Forks which replaced it with an {@link AtomicInteger} are supported as well.
+     * Counts down from the largest id if the counter is not accessible.
+     * Has to be called on the main thread.
+     *
+     * @return The new entity id.
+     */
+    private static int allocateEntityId() {
+        if (entityCountField != null) {
+            try {
+                if (entityCountField.getType() == int.class) {
+                    // Same as entityCount++ in the Entity constructor
+                    int entityId = entityCountField.getInt(null);
+                    entityCountField.setInt(null, entityId + 1);
+                    return entityId;
+                }
+
+                return ((AtomicInteger) entityCountField.get(null)).incrementAndGet();
+            } catch (IllegalAccessException exception) {
+                // Fall through to the fallback counter
+            }
+        }
+
+        return fallbackEntityCounter.getAndDecrement();
+    }
+
+    /**
+     * Accesses the field of the entity counter the server uses for the ids of new entities.
+     *
+     * @return The accessible field, null if it does not exist or is neither an int nor an {@link AtomicInteger}.
+     */
+    private static Field getEntityCountField() {
+        try {
+            Field entityCountField = Entity.class.getDeclaredField("entityCount");
+            entityCountField.setAccessible(true);
+
+            if (entityCountField.getType() == int.class || entityCountField.getType() == AtomicInteger.class) {
+                return entityCountField;
+            }
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            // Use the fallback counter
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the id the provided Packet is sent with.
+     *
+     * @param packet An instance of the Packet.
+     * @return The id of the Packet in the play protocol.
+     */
+    private static int getPacketId(Packet<?> packet) {
+        return EnumProtocol.PLAY.a(EnumProtocolDirection.CLIENTBOUND, packet);
+    }
+
+    /**
+     * Creates a new buffer for a Packet which is written from primitive values.
+     *
+     * @param packetId The id of the Packet.
+     * @return A new buffer already containing the Packet id.
+     */
+    private static ByteBuf createPacket(int packetId) {
+        ByteBuf buffer = PooledByteBufAllocator.DEFAULT.buffer();
+        new PacketDataSerializer(buffer).d(packetId);
+
+        return buffer;
+    }
+
+    /**
+     * Sends the provided encoded Packet to all provided Players.
+     * The same bytes are written to every connection instead of letting every connection encode the Packet again.
+     * The buffer is released afterwards.
+     *
+     * @param players       The receivers of the packet.
+     * @param encodedPacket The encoded Packet that should be sent.
+     */
+    private static void broadcastPacket(Set<Player> players, ByteBuf encodedPacket) {
+        try {
+            for (Player player : players) {
+                // The compression and length prefix handlers of the pipeline still process the bytes
+                writePacket(getChannel(player), encodedPacket.retainedDuplicate());
+            }
+        } finally {
+            encodedPacket.release();
+        }
+    }
+
+    /**
+     * Writes the encoded Packet to the channel.
+     * Flushes the channel immediately unless a batch has been started.
+     *
+     * @param channel       The channel of the receiver.
+     * @param encodedPacket The encoded Packet which should be written.
+     */
+    private static void writePacket(Channel channel, ByteBuf encodedPacket) {
+        if (!isBatching) {
+            channel.writeAndFlush(encodedPacket);
+            return;
+        }
+
+        channel.write(encodedPacket);
+        unflushedChannels.add(channel);
+        batchedWrites++;
+    }
+
+    /**
+     * Encodes the provided Packet with its id the same way the Minecraft packet encoder does.
+     *
+     * @param packet The Packet that should be encoded.
+     * @return A new buffer containing the Packet id and data.
+     */
+    private static ByteBuf encodePacket(Packet<?> packet) {
+        ByteBuf buffer = createPacket(getPacketId(packet));
+
+        try {
+            packet.b(new PacketDataSerializer(buffer));
+            return buffer;
+        } catch (IOException exception) {
+            buffer.release();
+            throw new IllegalStateException("Could not encode " + packet.getClass().getSimpleName(), exception);
+        }
+    }
+
+    /**
+     * Returns the Netty channel of the connection of the provided Player.
+     *
+     * @param player The Player whose channel should be returned.
+     * @return The channel of the Player.
+     */
+    private static Channel getChannel(Player player) {
+        return ((CraftPlayer) player).getHandle().playerConnection.networkManager.channel;
     }
 
     /**
@@ -2,20 +2,23 @@ package net.seliba.thirdpersonspectator.utils;
 
 import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.block.Block;
 import org.bukkit.util.Vector;
 
-import java.util.LinkedHashSet;
-import java.util.Set;
-
 /**
  * Class which represents a Raytrace.
- * Contains various utils for working with Vectors and Locations.
+ * Walks the blocks along a ray using a voxel traversal (Amanatides & Woo) on primitive values,
+ * so every crossed block is checked exactly once and no objects are allocated while walking.
+ * Blocks are read through a {@link BlockAccess}, so Raytraces on {@link ChunkSnapshotBlockAccess} may run off the main thread.
  */
 public final class Raytrace {
 
-    private final Vector origin;
-    private final Vector direction;
+    private final double originX;
+    private final double originY;
+    private final double originZ;
+
+    private final double directionX;
+    private final double directionY;
+    private final double directionZ;
 
     /**
      * The default constructor.
@@ -26,65 +29,164 @@ public final class Raytrace {
      * @param direction The direction of this Raytrace.
      */
     public Raytrace(Vector origin, Vector direction) {
-        this.origin = origin;
-        this.direction = direction;
+        this(origin.getX(), origin.getY(), origin.getZ(), direction.getX(), direction.getY(), direction.getZ());
     }
 
     /**
-     * Returns all location Vectors this Raytrace contains when traversing into the direction for the provided distance.
+     * Initializes a new Raytrace with the provided origin in the provided direction.
+     * The direction will be normalized, so distances are always measured in blocks.
      *
-     * @param distance The distance which should be traversed.
-     * @param accuracy The distance from which a new vector should be added to the list.
-     * @return All Vectors which this Raytrace traverses.
+     * @param originX    The x coordinate where this Raytrace should start.
+     * @param originY    The y coordinate where this Raytrace should start.
+     * @param originZ    The z coordinate where this Raytrace should start.
+     * @param directionX The x component of the direction of this Raytrace.
+     * @param directionY The y component of the direction of this Raytrace.
+     * @param directionZ The z component of the direction of this Raytrace.
      */
-    public Set<Vector> traverse(double distance, double accuracy) {
-        Set<Vector> locationVectors = new LinkedHashSet<>();
+    public Raytrace(double originX, double originY, double originZ, double directionX, double directionY, double directionZ) {
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
 
-        // Add all blocks this Raytrace traverses to the List
-        for (double d = 0; d <= distance; d += accuracy) {
-            locationVectors.add(getVectorAtPostion(d));
+        double length = Math.sqrt(directionX * directionX + directionY * directionY + directionZ * directionZ);
+        if (length == 0) {
+            length = 1;
         }
 
-        return locationVectors;
+        this.directionX = directionX / length;
+        this.directionY = directionY / length;
+        this.directionZ = directionZ / length;
     }
 
     /**
-     * Traverses this Raytrace into the direction for the provided distance and returns the resulting Vector.
+     * Walks this Raytrace block by block and returns the distance at which it enters the first non-transparent block.
      *
-     * @param distance The distance which should be traversed.
-     * @return The resulting Vector.
+     * @param maxDistance The maximum distance which should be traversed.
+     * @param world       The world the blocks should be checked in.
+     * @return The distance to the first non-transparent block, 0 if the origin is inside one
+     * and {@link Double#POSITIVE_INFINITY} if there is none within the maximum distance.
+     */
+    public double getHitDistance(double maxDistance, World world) {
+        return getHitDistance(maxDistance, new WorldBlockAccess(world));
+    }
+
+    /**
+     * Walks this Raytrace block by block and returns the distance at which it enters the first non-transparent block.
+     *
+     * @param maxDistance The maximum distance which should be traversed.
+     * @param blockAccess The access the blocks should be read from.
+     * @return The distance to the first non-transparent block, 0 if the origin is inside one
+     * and {@link Double#POSITIVE_INFINITY} if there is none within the maximum distance.
      */
-    private Vector getVectorAtPostion(double distance) {
-        return origin.clone().add(direction.clone().multiply(distance));
+    public double getHitDistance(double maxDistance, BlockAccess blockAccess) {
+        int blockX = floor(originX);
+        int blockY = floor(originY);
+        int blockZ = floor(originZ);
+
+        if (!isTransparent(blockAccess, blockX, blockY, blockZ)) {
+            return 0;
+        }
+
+        int stepX = Double.compare(directionX, 0);
+        int stepY = Double.compare(directionY, 0);
+        int stepZ = Double.compare(directionZ, 0);
+
+        // Distance along the ray between two block boundaries on each axis
+        double deltaX = stepX == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / directionX);
+        double deltaY = stepY == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / directionY);
+        double deltaZ = stepZ == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / directionZ);
+
+        // Distance along the ray to the next block boundary on each axis
+        double nextX = getFirstBoundaryDistance(originX, blockX, stepX, deltaX);
+        double nextY = getFirstBoundaryDistance(originY, blockY, stepY, deltaY);
+        double nextZ = getFirstBoundaryDistance(originZ, blockZ, stepZ, deltaZ);
+
+        while (true) {
+            double distance;
+
+            // Step into the neighbour block whose boundary is the closest one
+            if (nextX <= nextY && nextX <= nextZ) {
+                distance = nextX;
+                blockX += stepX;
+                nextX += deltaX;
+            } else if (nextY <= nextZ) {
+                distance = nextY;
+                blockY += stepY;
+                nextY += deltaY;
+            } else {
+                distance = nextZ;
+                blockZ += stepZ;
+                nextZ += deltaZ;
+            }
+
+            if (distance > maxDistance) {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            if (!isTransparent(blockAccess, blockX, blockY, blockZ)) {
+                return distance;
+            }
+        }
     }
 
     /**
      * Returns the Location that is the farthest away from the origin of this Raytrace while traversing for the provided distance without a block in the way.
      *
      * @param distance The distance which should be traversed.
-     * @param accuracy The distance between location checks.
+     * @param accuracy The distance between the Locations which may be returned.
      * @param world    The world the blocks should be checked in.
-     * @return The farthest location from the origin without blocks in the way.
+     * @return The farthest location from the origin without blocks in the way, null if the origin is blocked.
      */
     public Location getMostDistantLocation(double distance, double accuracy, World world) {
-        Location mostDistantLocation = null;
+        double mostDistantDistance = getMostDistantDistance(distance, accuracy, world);
 
-        for (Vector vector : traverse(distance, accuracy)) {
-            var possibleLocation = vector.toLocation(world);
+        if (mostDistantDistance < 0) {
+            return null;
+        }
 
-            // Blocks would be in the way, we already found the most distant location
-            if (!MaterialUtils.isTransparent(possibleLocation.getBlock().getType())) {
-                break;
-            }
+        return getLocationAtDistance(mostDistantDistance, world);
+    }
 
-            mostDistantLocation = possibleLocation;
+    /**
+     * Returns the farthest distance from the origin of this Raytrace while traversing for the provided distance without a block in the way.
+     *
+     * @param distance The distance which should be traversed.
+     * @param accuracy The step size the returned distance is a multiple of.
+     * @param world    The world the blocks should be checked in.
+     * @return The farthest distance from the origin without blocks in the way, -1 if the origin is blocked.
+     */
+    public double getMostDistantDistance(double distance, double accuracy, World world) {
+        return getMostDistantDistance(distance, accuracy, new WorldBlockAccess(world));
+    }
+
+    /**
+     * Returns the farthest distance from the origin of this Raytrace while traversing for the provided distance without a block in the way.
+     *
+     * @param distance    The distance which should be traversed.
+     * @param accuracy    The step size the returned distance is a multiple of.
+     * @param blockAccess The access the blocks should be read from.
+     * @return The farthest distance from the origin without blocks in the way, -1 if the origin is blocked.
+     */
+    public double getMostDistantDistance(double distance, double accuracy, BlockAccess blockAccess) {
+        double hitDistance = getHitDistance(distance, blockAccess);
+
+        if (hitDistance == 0) {
+            return -1;
+        }
+
+        // Snap to the last step of the provided accuracy in front of the hit
+        double steps = Math.floor(distance / accuracy);
+        if (hitDistance != Double.POSITIVE_INFINITY) {
+            steps = Math.min(steps, Math.ceil(hitDistance / accuracy) - 1);
         }
 
-        return mostDistantLocation;
+        return steps * accuracy;
     }
 
     /**
      * Returns whether or not there a blocks in the way when traversing this Raytrace for the provided distance.
+     * The block containing the origin is checked as well, so a Raytrace starting inside a non-transparent block
+     * always has blocks in the way. Start above the block when checking the line of sight out of it.
      *
      * @param distance The distance which should be traversed.
      * @param accuracy The distance between location checks.
@@ -92,12 +194,65 @@ public final class Raytrace {
      * @return Whether or not there a blocks in the direction.
      */
     public boolean hasBlocksInTheWay(double distance, double accuracy, World world) {
-        // Check all the blocks this Raytrace traverses
-        return traverse(distance, accuracy).stream()
-                .map(vector -> vector.toLocation(world))
-                .map(Location::getBlock)
-                .map(Block::getType)
-                .noneMatch(MaterialUtils::isTransparent);
+        return getHitDistance(Math.floor(distance / accuracy) * accuracy, world) != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the Location reached when traversing this Raytrace for the provided distance.
+     *
+     * @param distance The distance which should be traversed.
+     * @param world    The world of the Location.
+     * @return The resulting Location.
+     */
+    public Location getLocationAtDistance(double distance, World world) {
+        return new Location(world,
+                originX + directionX * distance,
+                originY + directionY * distance,
+                originZ + directionZ * distance
+        );
+    }
+
+    /**
+     * Calculates the distance along the ray to the first block boundary on one axis.
+     *
+     * @param origin The origin coordinate on this axis.
+     * @param block  The block coordinate containing the origin on this axis.
+     * @param step   The direction of the ray on this axis, either -1, 0 or 1.
+     * @param delta  The distance along the ray between two boundaries on this axis.
+     * @return The distance to the first boundary.
+     */
+    private static double getFirstBoundaryDistance(double origin, int block, int step, double delta) {
+        if (step > 0) {
+            return (block + 1 - origin) * delta;
+        } else if (step < 0) {
+            return (origin - block) * delta;
+        }
+
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Checks whether the block at the provided coordinates is transparent.
+     *
+     * @param blockAccess The access the block should be read from.
+     * @param x           The x coordinate of the block.
+     * @param y           The y coordinate of the block.
+     * @param z           The z coordinate of the block.
+     * @return Whether or not the block is transparent.
+     */
+    private static boolean isTransparent(BlockAccess blockAccess, int x, int y, int z) {
+        return MaterialUtils.isTransparent(blockAccess.getType(x, y, z));
+    }
+
+    /**
+     * Rounds the provided value down to the next integer without going through {@link Math#floor(double)}.
+     *
+     * @param value The value which should be rounded.
+     * @return The rounded value.
+     */
+    private static int floor(double value) {
+        int truncated = (int) value;
+        return value < truncated ? truncated - 1 : truncated;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,37 @@
+package net.seliba.thirdpersonspectator.utils;
+
+import com.github.johnnyjayjay.compatre.NmsDependent;
+import net.minecraft.server.v1_13_R2.BlockPosition;
+import net.minecraft.server.v1_13_R2.WorldServer;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.craftbukkit.v1_13_R2.CraftWorld;
+import org.bukkit.craftbukkit.v1_13_R2.util.CraftMagicNumbers;
+
+/**
+ * Reads blocks directly from a live {@link World}.
+ * The block states are read from the NMS World through a reused mutable position,
+ * so no Block or position objects are created per lookup.
+ * May only be used on the main thread.
+ */
+@NmsDependent
+public final class WorldBlockAccess implements BlockAccess {
+
+    private final WorldServer world;
+    private final BlockPosition.MutableBlockPosition position = new BlockPosition.MutableBlockPosition();
+
+    /**
+     * The default constructor.
+     *
+     * @param world The World the blocks should be read from.
+     */
+    public WorldBlockAccess(World world) {
+        this.world = ((CraftWorld) world).getHandle();
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        return CraftMagicNumbers.getMaterial(world.getType(position.c(x, y, z)).getBlock());
+    }
+
+}